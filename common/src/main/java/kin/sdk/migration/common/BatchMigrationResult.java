@@ -0,0 +1,54 @@
+package kin.sdk.migration.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The per address outcome of a batch migration.
+ */
+public class BatchMigrationResult {
+
+    /**
+     * the sdk version that the accounts should run on.
+     */
+    private final KinSdkVersion sdkVersion;
+
+    /**
+     * the addresses which are ready to use, whether they were migrated now, before or don't need a migration.
+     */
+    private final List<String> readyAddresses;
+
+    /**
+     * the addresses which failed, with the error of each one.
+     */
+    private final Map<String, Exception> failures;
+
+    public BatchMigrationResult(KinSdkVersion sdkVersion, List<String> readyAddresses,
+        Map<String, Exception> failures) {
+        this.sdkVersion = sdkVersion;
+        this.readyAddresses = Collections.unmodifiableList(new ArrayList<>(readyAddresses));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    public KinSdkVersion getSdkVersion() {
+        return sdkVersion;
+    }
+
+    public List<String> getReadyAddresses() {
+        return readyAddresses;
+    }
+
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return true if all the addresses are ready.
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,385 @@
+package kin.sdk.migration.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result of an asynchronous operation, which can be composed with other asynchronous operations.
+ * <p>Stages that are chained with {@link #map(Function)} and {@link #thenAsync(AsyncFunction)} run when the previous
+ * stage completes, no thread waits for them in between. Cancelling a future cancels the stage that is currently
+ * running, interrupting its thread if it already started.</p>
+ *
+ * @param <T> the type of the result.
+ */
+public class KinFuture<T> {
+
+    public interface Callback<T> {
+
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    public interface Function<T, R> {
+
+        R apply(T value) throws Exception;
+    }
+
+    public interface AsyncFunction<T, R> {
+
+        @NonNull
+        KinFuture<R> apply(T value) throws Exception;
+    }
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private final Object lock = new Object();
+    private int state = PENDING;
+    private T result;
+    private Exception error;
+    private List<Runnable> listeners;
+    // cancels whatever currently produces the result, a running task or an upstream stage.
+    @Nullable
+    private Runnable cancelAction;
+    // the thread running the task of supplyAsync, interrupted by cancel() only while holding the lock.
+    @Nullable
+    private Thread runner;
+
+    /**
+     * Run the callable on the executor.
+     */
+    @NonNull
+    public static <T> KinFuture<T> supplyAsync(@NonNull final Callable<T> callable, @NonNull Executor executor) {
+        final KinFuture<T> future = new KinFuture<>();
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (!future.setRunner(Thread.currentThread())) {
+                    return;
+                }
+                try {
+                    future.complete(callable.call());
+                } catch (Exception e) {
+                    future.fail(e);
+                } finally {
+                    // once the runner is cleared cancel() can't interrupt this thread anymore, so clearing the
+                    // interrupt status after it is enough to keep a late interrupt from reaching the next task of the
+                    // pool.
+                    future.setRunner(null);
+                    Thread.interrupted();
+                }
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+
+    @NonNull
+    public static <T> KinFuture<T> completed(T value) {
+        KinFuture<T> future = new KinFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    @NonNull
+    public static <T> KinFuture<T> failed(@NonNull Exception e) {
+        KinFuture<T> future = new KinFuture<>();
+        future.fail(e);
+        return future;
+    }
+
+    /**
+     * @return true if this call completed the future, false if it was already completed.
+     */
+    public boolean complete(T value) {
+        return setResult(SUCCEEDED, value, null);
+    }
+
+    /**
+     * @return true if this call completed the future, false if it was already completed.
+     */
+    public boolean fail(@NonNull Exception e) {
+        return setResult(FAILED, null, e);
+    }
+
+    /**
+     * Cancel the operation, the callbacks get a {@link CancellationException}.
+     *
+     * @return true if the future was cancelled, false if it was already completed.
+     */
+    public boolean cancel() {
+        Runnable cancelAction;
+        synchronized (lock) {
+            cancelAction = this.cancelAction;
+        }
+        if (!setResult(CANCELLED, null, new CancellationException())) {
+            return false;
+        }
+        synchronized (lock) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+        if (cancelAction != null) {
+            cancelAction.run();
+        }
+        return true;
+    }
+
+    public boolean isDone() {
+        synchronized (lock) {
+            return state != PENDING;
+        }
+    }
+
+    public boolean isCancelled() {
+        synchronized (lock) {
+            return state == CANCELLED;
+        }
+    }
+
+    /**
+     * Wait for the result, this method blocks and should not be called on the android main thread.
+     *
+     * @throws ExecutionException if the operation failed, the cause is the failure.
+     * @throws CancellationException if the operation was cancelled.
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        synchronized (lock) {
+            while (state == PENDING) {
+                lock.wait();
+            }
+            return getResult();
+        }
+    }
+
+    /**
+     * @throws TimeoutException if the operation didn't complete in time.
+     * @see #get()
+     */
+    public T get(long timeout, @NonNull TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (state == PENDING) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return getResult();
+        }
+    }
+
+    /**
+     * Call the callback on the executor once the operation completes, right away if it already did.
+     */
+    public void addCallback(@NonNull final Callback<? super T> callback, @NonNull final Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int state;
+                        T result;
+                        Exception error;
+                        synchronized (lock) {
+                            state = KinFuture.this.state;
+                            result = KinFuture.this.result;
+                            error = KinFuture.this.error;
+                        }
+                        if (state == SUCCEEDED) {
+                            callback.onResult(result);
+                        } else {
+                            callback.onError(error);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @param function transforms the result, it's called on the thread that completed this future so it should be
+     * quick.
+     * @return a future of the transformed result, or of the failure of this future or of the function.
+     */
+    @NonNull
+    public <R> KinFuture<R> map(@NonNull final Function<? super T, ? extends R> function) {
+        final KinFuture<R> next = new KinFuture<>();
+        next.setCancelAction(cancelRunnable());
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                Exception failure = getFailure();
+                if (failure != null) {
+                    next.fail(failure);
+                    return;
+                }
+                try {
+                    next.complete(function.apply(getSucceededResult()));
+                } catch (Exception e) {
+                    next.fail(e);
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Start another asynchronous operation with the result of this one.
+     *
+     * @param function starts the next operation, it's called on the thread that completed this future so it should
+     * only start the operation and not wait for it.
+     * @return a future of the result of the next operation, or of the failure of this future or of the function.
+     */
+    @NonNull
+    public <R> KinFuture<R> thenAsync(@NonNull final AsyncFunction<? super T, R> function) {
+        final KinFuture<R> next = new KinFuture<>();
+        next.setCancelAction(cancelRunnable());
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                Exception failure = getFailure();
+                if (failure != null) {
+                    next.fail(failure);
+                    return;
+                }
+                final KinFuture<R> inner;
+                try {
+                    inner = function.apply(getSucceededResult());
+                } catch (Exception e) {
+                    next.fail(e);
+                    return;
+                }
+                if (!next.setCancelAction(inner.cancelRunnable())) {
+                    inner.cancel();
+                    return;
+                }
+                inner.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        Exception innerFailure = inner.getFailure();
+                        if (innerFailure != null) {
+                            next.fail(innerFailure);
+                        } else {
+                            next.complete(inner.getSucceededResult());
+                        }
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    private Runnable cancelRunnable() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        };
+    }
+
+    /**
+     * @return false if the future is already completed, in which case the action is not set.
+     */
+    private boolean setCancelAction(@Nullable Runnable cancelAction) {
+        synchronized (lock) {
+            if (state != PENDING) {
+                return false;
+            }
+            this.cancelAction = cancelAction;
+            return true;
+        }
+    }
+
+    /**
+     * @return false if the future is already completed when setting a runner, in which case it is not set.
+     */
+    private boolean setRunner(@Nullable Thread runner) {
+        synchronized (lock) {
+            if (runner != null && state != PENDING) {
+                return false;
+            }
+            this.runner = runner;
+            return true;
+        }
+    }
+
+    private void addListener(Runnable listener) {
+        synchronized (lock) {
+            if (state == PENDING) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(2);
+                }
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private boolean setResult(int newState, T value, Exception e) {
+        List<Runnable> listeners;
+        synchronized (lock) {
+            if (state != PENDING) {
+                return false;
+            }
+            state = newState;
+            result = value;
+            error = e;
+            cancelAction = null;
+            listeners = this.listeners;
+            this.listeners = null;
+            lock.notifyAll();
+        }
+        if (listeners != null) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+        return true;
+    }
+
+    private T getResult() throws ExecutionException {
+        if (state == SUCCEEDED) {
+            return result;
+        }
+        if (state == CANCELLED) {
+            throw (CancellationException) error;
+        }
+        throw new ExecutionException(error);
+    }
+
+    @Nullable
+    private Exception getFailure() {
+        synchronized (lock) {
+            return state == SUCCEEDED ? null : error;
+        }
+    }
+
+    private T getSucceededResult() {
+        synchronized (lock) {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package kin.sdk.migration.common.exception;
+
+/**
+ * The migration was stopped before it was completed, either because it was cancelled or because its deadline has
+ * passed.
+ */
+public class MigrationCancelledException extends MigrationFailedException {
+
+    private final boolean deadlineExceeded;
+
+    public MigrationCancelledException(String message, boolean deadlineExceeded) {
+        super(message);
+        this.deadlineExceeded = deadlineExceeded;
+    }
+
+    /**
+     * @return true if the migration was stopped because its deadline has passed, false if it was cancelled.
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+}
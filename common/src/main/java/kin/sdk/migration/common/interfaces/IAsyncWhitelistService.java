@@ -0,0 +1,17 @@
+package kin.sdk.migration.common.interfaces;
+
+public interface IAsyncWhitelistService {
+
+    /**
+     * Method which sign the transaction so it will be in the whitelist, without blocking the calling thread.
+     * <p>Called on a background thread, which should not wait for the whitelist service. Report the result through
+     * the callbacks, from any thread.</p>
+     * @param whitelistableTransaction is a wrapper object which holds the transaction payload and
+     *                                 the network passphrase.
+     *                                 in blockchain terms, both of those objects are composing the transaction envelope
+     * @param callbacks call {@link IWhitelistServiceCallbacks#onSuccess(String)} with the whitelisted transaction
+     *                  envelope, or {@link IWhitelistServiceCallbacks#onFailure(Exception)} if it could not be whitelisted.
+     */
+    void whitelistTransaction(IWhitelistableTransaction whitelistableTransaction, IWhitelistServiceCallbacks callbacks);
+
+}
@@ -0,0 +1,29 @@
+package kin.sdk.migration.common.interfaces;
+
+import kin.sdk.migration.common.BatchMigrationResult;
+
+public interface IBatchMigrationCallbacks {
+
+    /**
+     * Method is invoked once before the migration of the accounts itself will start.
+     * Meaning this is an optional call which will be called only when actual migration takes place.
+     */
+    void onMigrationStart();
+
+    /**
+     * Method is invoked when all the accounts were handled, whether each one of them succeeded or failed.
+     * This also means that the batch migration process is now ended.
+     * @param kinClient is the kinClient, of the sdk version in the result.
+     * @param result is the outcome of every address.
+     */
+    void onReady(IKinClient kinClient, BatchMigrationResult result);
+
+    /**
+     * Method is invoked when an error prevented the whole batch from running, for example when the sdk version
+     * couldn't be resolved or the migration was cancelled.
+     * This also means that the batch migration process is now ended.
+     * @param e is the exception for that error.
+     */
+    void onError(Exception e);
+
+}
@@ -3,6 +3,7 @@ package kin.sdk.migration.common.interfaces;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import java.math.BigDecimal;
+import kin.sdk.migration.common.KinFuture;
 import kin.sdk.migration.common.KinSdkVersion;
 import kin.sdk.migration.common.exception.AccountNotActivatedException;
 import kin.sdk.migration.common.exception.AccountNotFoundException;
@@ -85,6 +86,39 @@ public interface IKinAccount {
     ITransactionId sendTransactionSync(@NonNull String publicAddress, @NonNull BigDecimal amount, IWhitelistService whitelistService, @Nullable String memo)
             throws OperationFailedException;
 
+    /**
+     * Sign and send a transaction of the given amount in kin to the specified public address, asynchronously.
+     * <p>The steps of the transaction (build, whitelist and send) run one after the other on a shared bounded
+     * executor without a thread waiting between them. The transactions of an account, sync and async, are sent in
+     * the order of the calls, each one after the previous one was sent, so they don't race on the account sequence
+     * number. A transaction that fails with tx_bad_seq is built again and resent a few times.</p>
+     * <p> See {@link #sendTransactionSync(String, BigDecimal, IWhitelistService, String)} for possibles errors</p>
+     *
+     * @param publicAddress the account address to send the specified kin amount
+     * @param amount the amount of kin to transfer
+     * @param whitelistService is a service which can be used in order to whitelist the transaction before sending it.
+     * @param memo An optional string, can contain a utf-8 string up to 28 bytes in length, included on the transaction
+     * record.
+     * @return {@code KinFuture<TransactionId>}, TransactionId - the transaction identifier
+     */
+    @NonNull
+    KinFuture<ITransactionId> sendTransactionAsync(@NonNull String publicAddress, @NonNull BigDecimal amount, IWhitelistService whitelistService, @Nullable String memo);
+
+    /**
+     * Sign and send a transaction of the given amount in kin to the specified public address, asynchronously, with
+     * a whitelist service that doesn't block a thread while it works.
+     * <p> See {@link #sendTransactionAsync(String, BigDecimal, IWhitelistService, String)}</p>
+     *
+     * @param publicAddress the account address to send the specified kin amount
+     * @param amount the amount of kin to transfer
+     * @param whitelistService is a service which is used in order to whitelist the transaction before sending it.
+     * @param memo An optional string, can contain a utf-8 string up to 28 bytes in length, included on the transaction
+     * record.
+     * @return {@code KinFuture<TransactionId>}, TransactionId - the transaction identifier
+     */
+    @NonNull
+    KinFuture<ITransactionId> sendTransactionAsync(@NonNull String publicAddress, @NonNull BigDecimal amount, @NonNull IAsyncWhitelistService whitelistService, @Nullable String memo);
+
 
     /**
      * Create request for getting the current confirmed balance in kin
@@ -106,6 +140,31 @@ public interface IKinAccount {
     @NonNull
     IBalance getBalanceSync() throws OperationFailedException;
 
+    /**
+     * Get the current confirmed balance in kin asynchronously, on a shared bounded executor.
+     * <p> See {@link #getBalanceSync()} for possibles errors</p>
+     *
+     * @return {@code KinFuture<Balance>} Balance - the balance in kin
+     */
+    @NonNull
+    KinFuture<IBalance> getBalanceAsync();
+
+    /**
+     * Cache the balance of this account, so {@link #getBalanceSync()} and friends usually return without accessing
+     * the network.
+     * <p>The cached balance is kept up to date by a balance listener, and it is fetched again when it is older than
+     * the ttl, or after this account sent a transaction. Concurrent reads share a single fetch. Disabled by
+     * default.</p>
+     *
+     * @param ttlMillis how long a balance is used before it is fetched again, if no balance update came in.
+     */
+    void enableBalanceCache(long ttlMillis);
+
+    /**
+     * Stop caching the balance and remove the balance listener of the cache.
+     */
+    void disableBalanceCache();
+
     /**
      * Create Request for allowing an account to receive kin.
      * <p> See KinAccount.activateSync() for possibles errors</p>
@@ -142,6 +201,16 @@ public interface IKinAccount {
      */
     Request<Integer> getStatus();
 
+    /**
+     * Get current account status on blockchain network asynchronously, on a shared bounded executor.
+     * <p> See {@link #getStatusSync()} for possibles errors</p>
+     *
+     * @return account status, either AccountStatus.NOT_CREATED, AccountStatus.NOT_ACTIVATED or
+     * AccountStatus.ACTIVATED
+     */
+    @NonNull
+    KinFuture<Integer> getStatusAsync();
+
     /**
      * Export the account data as a JSON string. The seed is encrypted.
      *
@@ -27,6 +27,18 @@ public interface IKinClient {
      */
     IKinAccount getAccount(int index);
 
+    /**
+     * Returns the account with the input public address.
+     *
+     * @return the account with the input public address or null if there is no such account
+     */
+    IKinAccount getAccount(String publicAddress);
+
+    /**
+     * @return true if there is an existing account with the input public address
+     */
+    boolean hasAccount(String publicAddress);
+
     /**
      * @return true if there is an existing account
      */
@@ -0,0 +1,87 @@
+package kin.sdk.migration.internal;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bounded thread pool on which the asynchronous account operations run, shared by all the accounts in the process.
+ */
+public final class AccountExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "kin-account-";
+    private static final String SCHEDULER_THREAD_NAME_PREFIX = "kin-account-timer-";
+    private static final int MAX_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile Executor defaultExecutor;
+    private static volatile ScheduledExecutorService scheduler;
+
+    private AccountExecutor() {
+    }
+
+    @NonNull
+    public static Executor getDefault() {
+        if (defaultExecutor == null) {
+            synchronized (AccountExecutor.class) {
+                if (defaultExecutor == null) {
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                            new AccountThreadFactory(THREAD_NAME_PREFIX));
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    defaultExecutor = threadPoolExecutor;
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * A single thread that fires the timeouts of the asynchronous account operations, the scheduled tasks should
+     * only complete a future and not do any real work.
+     */
+    @NonNull
+    public static ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            synchronized (AccountExecutor.class) {
+                if (scheduler == null) {
+                    ScheduledThreadPoolExecutor scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1,
+                            new AccountThreadFactory(SCHEDULER_THREAD_NAME_PREFIX));
+                    scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
+                    scheduler = scheduledThreadPoolExecutor;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    private static class AccountThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        AccountThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package kin.sdk.migration.internal;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import kin.sdk.migration.common.KinFuture;
+import kin.sdk.migration.common.exception.OperationFailedException;
+import kin.sdk.migration.common.interfaces.IBalance;
+
+/**
+ * The cached balance of a single account.
+ * <p>The balance is updated by the balance listener of the account, so reads usually don't go to the network. When
+ * the balance is older than the ttl it's fetched again, and concurrent readers share that single fetch.</p>
+ */
+public class BalanceCache {
+
+    public interface Fetcher {
+
+        @NonNull
+        IBalance fetch() throws OperationFailedException;
+    }
+
+    private final Fetcher fetcher;
+    private final long ttlNanos;
+    private final Object lock = new Object();
+    private IBalance balance;
+    private long updatedAtNanos;
+    // increased on every update, so a fetch that started before a listener update doesn't override it.
+    private long version;
+    private KinFuture<IBalance> inFlightFetch;
+
+    public BalanceCache(@NonNull Fetcher fetcher, long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative");
+        }
+        this.fetcher = fetcher;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    @NonNull
+    public IBalance get() throws OperationFailedException {
+        KinFuture<IBalance> fetch;
+        long fetchVersion;
+        synchronized (lock) {
+            if (balance != null && System.nanoTime() - updatedAtNanos < ttlNanos) {
+                return balance;
+            }
+            if (inFlightFetch != null) {
+                fetch = inFlightFetch;
+                fetchVersion = -1;
+            } else {
+                fetch = new KinFuture<>();
+                inFlightFetch = fetch;
+                fetchVersion = version;
+            }
+        }
+        if (fetchVersion < 0) {
+            return await(fetch);
+        }
+        try {
+            IBalance fetched = fetcher.fetch();
+            synchronized (lock) {
+                if (version == fetchVersion) {
+                    set(fetched);
+                }
+            }
+            fetch.complete(fetched);
+            return fetched;
+        } catch (OperationFailedException | RuntimeException e) {
+            fetch.fail(e);
+            throw e;
+        } finally {
+            synchronized (lock) {
+                // invalidate() may have replaced it with a newer fetch already.
+                if (inFlightFetch == fetch) {
+                    inFlightFetch = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Called with the balance the network reported for the account.
+     */
+    public void onBalanceUpdated(@NonNull IBalance balance) {
+        synchronized (lock) {
+            set(balance);
+        }
+    }
+
+    /**
+     * Drop the cached balance, for example after a transaction of the account, so the next read fetches it. A fetch
+     * that is already running may have started before the transaction, so the next read doesn't join it.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            balance = null;
+            inFlightFetch = null;
+            version++;
+        }
+    }
+
+    private void set(IBalance balance) {
+        this.balance = balance;
+        updatedAtNanos = System.nanoTime();
+        version++;
+    }
+
+    private static IBalance await(KinFuture<IBalance> fetch) throws OperationFailedException {
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationFailedException("Interrupted while waiting for the balance", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof OperationFailedException) {
+                throw (OperationFailedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new OperationFailedException(cause);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package kin.sdk.migration.internal;
+
+import kin.sdk.migration.common.interfaces.IKinClient;
+
+/**
+ * Notified after an account was added to, imported into or deleted from the key store of a kin client.
+ */
+public interface OnAccountsChangedListener {
+
+    void onAccountsChanged(IKinClient kinClient);
+}
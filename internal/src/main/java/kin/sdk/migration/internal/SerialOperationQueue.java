@@ -0,0 +1,87 @@
+package kin.sdk.migration.internal;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.Executor;
+import kin.sdk.migration.common.KinFuture;
+
+/**
+ * Runs asynchronous operations one after the other, in the order they were added.
+ * <p>The next operation starts when the previous one completes, successfully or not, and no thread waits in between.
+ * Used to keep the transactions of an account from racing on the account sequence number.</p>
+ */
+public class SerialOperationQueue {
+
+    public interface Operation<T> {
+
+        /**
+         * Start the operation, should not block.
+         */
+        @NonNull
+        KinFuture<T> start() throws Exception;
+    }
+
+    public static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private final Object lock = new Object();
+    private KinFuture<Void> last = KinFuture.completed(null);
+
+    /**
+     * @return the result of the operation. Cancelling it before the operation started skips the operation, an
+     * operation that already started is not stopped.
+     */
+    @NonNull
+    public <T> KinFuture<T> enqueue(@NonNull final Operation<T> operation) {
+        final KinFuture<T> result = new KinFuture<>();
+        final KinFuture<Void> done = new KinFuture<>();
+        KinFuture<Void> previous;
+        synchronized (lock) {
+            previous = last;
+            last = done;
+        }
+        previous.addCallback(new KinFuture.Callback<Void>() {
+            @Override
+            public void onResult(Void nothing) {
+                start(operation, result, done);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                start(operation, result, done);
+            }
+        }, DIRECT_EXECUTOR);
+        return result;
+    }
+
+    private static <T> void start(Operation<T> operation, final KinFuture<T> result, final KinFuture<Void> done) {
+        if (result.isDone()) {
+            done.complete(null);
+            return;
+        }
+        KinFuture<T> operationFuture;
+        try {
+            operationFuture = operation.start();
+        } catch (Exception e) {
+            result.fail(e);
+            done.complete(null);
+            return;
+        }
+        operationFuture.addCallback(new KinFuture.Callback<T>() {
+            @Override
+            public void onResult(T value) {
+                done.complete(null);
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                done.complete(null);
+                result.fail(e);
+            }
+        }, DIRECT_EXECUTOR);
+    }
+}
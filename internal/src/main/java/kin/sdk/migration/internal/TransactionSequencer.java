@@ -0,0 +1,161 @@
+package kin.sdk.migration.internal;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import kin.sdk.migration.common.KinFuture;
+import kin.sdk.migration.common.exception.OperationFailedException;
+import kin.sdk.migration.common.exception.TransactionFailedException;
+
+/**
+ * Orders the transactions of a single account, so concurrent sends never race on the account sequence number.
+ * <p>Transactions are submitted in the order they were added, each one only after the previous one was submitted,
+ * sync and async sends alike. The sdk reads the sequence number from the network when it builds the transaction, so
+ * a transaction that fails with {@code tx_bad_seq} (the sequence moved, for example by a send from another device)
+ * is built again with a fresh sequence number and resubmitted, a bounded number of times.</p>
+ */
+public class TransactionSequencer {
+
+    public interface Submission<T> {
+
+        /**
+         * Build, sign and submit the transaction, blocking.
+         */
+        T submit() throws OperationFailedException;
+    }
+
+    static final String TX_BAD_SEQ = "tx_bad_seq";
+    static final int MAX_BAD_SEQUENCE_RETRIES = 3;
+    private static final long DEFAULT_TURN_TIMEOUT_MILLIS = 120000;
+
+    private final long turnTimeoutMillis;
+    private final SerialOperationQueue queue = new SerialOperationQueue();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong badSequenceRetries = new AtomicLong();
+
+    public TransactionSequencer() {
+        this(DEFAULT_TURN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param turnTimeoutMillis how long a blocking {@link #submit(Submission)} waits for the transactions that were
+     * added before it.
+     */
+    public TransactionSequencer(long turnTimeoutMillis) {
+        this.turnTimeoutMillis = turnTimeoutMillis;
+    }
+
+    /**
+     * Submit a transaction after all the transactions that were added before it.
+     *
+     * @param operation starts building and submitting the transaction, may be started again on {@code tx_bad_seq}.
+     */
+    @NonNull
+    public <T> KinFuture<T> submitAsync(@NonNull final SerialOperationQueue.Operation<T> operation) {
+        return queue.enqueue(new SerialOperationQueue.Operation<T>() {
+            @NonNull
+            @Override
+            public KinFuture<T> start() {
+                KinFuture<T> result = new KinFuture<>();
+                attempt(operation, result, 0);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Submit a transaction after all the transactions that were added before it, blocking until it was submitted.
+     * <p>The submission runs on the calling thread once its turn comes.</p>
+     *
+     * @throws OperationFailedException also if the previous transactions didn't complete in time, in which case this
+     * one is not submitted.
+     */
+    public <T> T submit(@NonNull Submission<T> submission) throws OperationFailedException {
+        final KinFuture<Void> turn = new KinFuture<>();
+        final KinFuture<Void> finished = new KinFuture<>();
+        queue.enqueue(new SerialOperationQueue.Operation<Void>() {
+            @NonNull
+            @Override
+            public KinFuture<Void> start() {
+                turn.complete(null);
+                return finished;
+            }
+        });
+        try {
+            turn.get(turnTimeoutMillis, TimeUnit.MILLISECONDS);
+            for (int retry = 0; ; retry++) {
+                try {
+                    T value = submission.submit();
+                    submittedCount.incrementAndGet();
+                    return value;
+                } catch (TransactionFailedException e) {
+                    if (!isBadSequence(e) || retry >= MAX_BAD_SEQUENCE_RETRIES) {
+                        throw e;
+                    }
+                    badSequenceRetries.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationFailedException("Interrupted while waiting to submit the transaction", e);
+        } catch (TimeoutException e) {
+            throw new OperationFailedException("Timed out waiting for the previous transactions of the account", e);
+        } catch (ExecutionException e) {
+            // the turn future is only ever completed successfully.
+            throw new IllegalStateException(e);
+        } finally {
+            // let the next transaction go, also when this one gave up before its turn came.
+            finished.complete(null);
+        }
+    }
+
+    /**
+     * @return the number of transactions that were submitted successfully.
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return the number of times a transaction was built again because of {@code tx_bad_seq}.
+     */
+    public long getBadSequenceRetries() {
+        return badSequenceRetries.get();
+    }
+
+    private <T> void attempt(final SerialOperationQueue.Operation<T> operation, final KinFuture<T> result,
+        final int retry) {
+        KinFuture<T> attempt;
+        try {
+            attempt = operation.start();
+        } catch (Exception e) {
+            result.fail(e);
+            return;
+        }
+        attempt.addCallback(new KinFuture.Callback<T>() {
+            @Override
+            public void onResult(T value) {
+                submittedCount.incrementAndGet();
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isBadSequence(e) && retry < MAX_BAD_SEQUENCE_RETRIES && !result.isDone()) {
+                    // the transaction was rejected, so building it again with a fresh sequence number is safe.
+                    badSequenceRetries.incrementAndGet();
+                    attempt(operation, result, retry + 1);
+                } else {
+                    result.fail(e);
+                }
+            }
+        }, SerialOperationQueue.DIRECT_EXECUTOR);
+    }
+
+    static boolean isBadSequence(Exception e) {
+        return e instanceof TransactionFailedException
+            && TX_BAD_SEQ.equals(((TransactionFailedException) e).getTransactionResultCode());
+    }
+}
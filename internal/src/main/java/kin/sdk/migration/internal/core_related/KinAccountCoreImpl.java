@@ -10,6 +10,7 @@ import kin.core.KinAccount;
 import kin.core.ListenerRegistration;
 import kin.core.PaymentInfo;
 import kin.core.TransactionId;
+import kin.sdk.migration.common.KinFuture;
 import kin.sdk.migration.common.KinSdkVersion;
 import kin.sdk.migration.common.exception.AccountNotActivatedException;
 import kin.sdk.migration.common.exception.AccountNotFoundException;
@@ -17,6 +18,7 @@ import kin.sdk.migration.common.exception.CryptoException;
 import kin.sdk.migration.common.exception.InsufficientKinException;
 import kin.sdk.migration.common.exception.OperationFailedException;
 import kin.sdk.migration.common.exception.TransactionFailedException;
+import kin.sdk.migration.common.interfaces.IAsyncWhitelistService;
 import kin.sdk.migration.common.interfaces.IBalance;
 import kin.sdk.migration.common.interfaces.IEventListener;
 import kin.sdk.migration.common.interfaces.IKinAccount;
@@ -24,6 +26,10 @@ import kin.sdk.migration.common.interfaces.IListenerRegistration;
 import kin.sdk.migration.common.interfaces.IPaymentInfo;
 import kin.sdk.migration.common.interfaces.ITransactionId;
 import kin.sdk.migration.common.interfaces.IWhitelistService;
+import kin.sdk.migration.internal.AccountExecutor;
+import kin.sdk.migration.internal.BalanceCache;
+import kin.sdk.migration.internal.SerialOperationQueue;
+import kin.sdk.migration.internal.TransactionSequencer;
 import kin.utils.Request;
 
 public class KinAccountCoreImpl implements IKinAccount {
@@ -33,6 +39,10 @@ public class KinAccountCoreImpl implements IKinAccount {
 
     private final String appId;
     private final KinAccount kinAccount;
+    // the transactions of this account are sent one after the other, so they don't race on the sequence number.
+    private final TransactionSequencer transactionSequencer = new TransactionSequencer();
+    private volatile BalanceCache balanceCache;
+    private IListenerRegistration balanceCacheRegistration;
 
     KinAccountCoreImpl(String appId, KinAccount kinAccount) {
         this.appId = appId;
@@ -72,10 +82,21 @@ public class KinAccountCoreImpl implements IKinAccount {
 
     @NonNull
     @Override
-    public ITransactionId sendTransactionSync(@NonNull String publicAddress, @NonNull BigDecimal amount,
-                                              IWhitelistService whitelistService, @Nullable String memo) throws OperationFailedException {
+    public ITransactionId sendTransactionSync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                              IWhitelistService whitelistService, final @Nullable String memo) throws OperationFailedException {
+        return transactionSequencer.submit(new TransactionSequencer.Submission<ITransactionId>() {
+            @Override
+            public ITransactionId submit() throws OperationFailedException {
+                return submitTransaction(publicAddress, amount, memo);
+            }
+        });
+    }
+
+    private ITransactionId submitTransaction(@NonNull String publicAddress, @NonNull BigDecimal amount,
+                                             @Nullable String memo) throws OperationFailedException {
         try {
             TransactionId transactionId = kinAccount.sendTransactionSync(publicAddress, amount, addAppIdToMemo(memo, appId));
+            invalidateBalanceCache();
             return new KinCoreTransactionId(transactionId);
         } catch (kin.core.exception.AccountNotFoundException e) {
             throw new AccountNotFoundException(e.getAccountId());
@@ -90,6 +111,37 @@ public class KinAccountCoreImpl implements IKinAccount {
         }
     }
 
+    @NonNull
+    @Override
+    public KinFuture<ITransactionId> sendTransactionAsync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                                          final IWhitelistService whitelistService, final @Nullable String memo) {
+        return sendTransactionAsync(publicAddress, amount, memo);
+    }
+
+    @NonNull
+    @Override
+    public KinFuture<ITransactionId> sendTransactionAsync(@NonNull String publicAddress, @NonNull BigDecimal amount,
+                                                          IAsyncWhitelistService whitelistService, @Nullable String memo) {
+        return sendTransactionAsync(publicAddress, amount, memo);
+    }
+
+    private KinFuture<ITransactionId> sendTransactionAsync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                                           final @Nullable String memo) {
+        // kin core builds and sends the transaction in one call, there is no whitelist step.
+        return transactionSequencer.submitAsync(new SerialOperationQueue.Operation<ITransactionId>() {
+            @NonNull
+            @Override
+            public KinFuture<ITransactionId> start() {
+                return KinFuture.supplyAsync(new Callable<ITransactionId>() {
+                    @Override
+                    public ITransactionId call() throws Exception {
+                        return submitTransaction(publicAddress, amount, memo);
+                    }
+                }, AccountExecutor.getDefault());
+            }
+        });
+    }
+
     private String addAppIdToMemo(@Nullable String memo, @NonNull String appId) {
         if (memo == null) {
             memo = "";
@@ -110,6 +162,7 @@ public class KinAccountCoreImpl implements IKinAccount {
     public ITransactionId sendBurnTransactionSync(@NonNull String publicAddress) throws OperationFailedException {
         try {
             TransactionId transactionId = kinAccount.sendBurnAccountTransactionSync(publicAddress);
+            invalidateBalanceCache();
             return new KinCoreTransactionId(transactionId);
         } catch (kin.core.exception.AccountNotFoundException e) {
             throw new AccountNotFoundException(e.getAccountId());
@@ -146,9 +199,61 @@ public class KinAccountCoreImpl implements IKinAccount {
         });
     }
 
+    @NonNull
+    @Override
+    public KinFuture<IBalance> getBalanceAsync() {
+        return KinFuture.supplyAsync(new Callable<IBalance>() {
+            @Override
+            public IBalance call() throws Exception {
+                return getBalanceSync();
+            }
+        }, AccountExecutor.getDefault());
+    }
+
     @NonNull
     @Override
     public IBalance getBalanceSync() throws OperationFailedException {
+        BalanceCache balanceCache = this.balanceCache;
+        return balanceCache != null ? balanceCache.get() : fetchBalance();
+    }
+
+    @Override
+    public synchronized void enableBalanceCache(long ttlMillis) {
+        disableBalanceCache();
+        final BalanceCache balanceCache = new BalanceCache(new BalanceCache.Fetcher() {
+            @NonNull
+            @Override
+            public IBalance fetch() throws OperationFailedException {
+                return fetchBalance();
+            }
+        }, ttlMillis);
+        balanceCacheRegistration = addBalanceListener(new IEventListener<IBalance>() {
+            @Override
+            public void onEvent(IBalance balance) {
+                balanceCache.onBalanceUpdated(balance);
+            }
+        });
+        this.balanceCache = balanceCache;
+    }
+
+    @Override
+    public synchronized void disableBalanceCache() {
+        if (balanceCacheRegistration != null) {
+            balanceCacheRegistration.remove();
+            balanceCacheRegistration = null;
+        }
+        balanceCache = null;
+    }
+
+    private void invalidateBalanceCache() {
+        BalanceCache balanceCache = this.balanceCache;
+        if (balanceCache != null) {
+            balanceCache.invalidate();
+        }
+    }
+
+    @NonNull
+    private IBalance fetchBalance() throws OperationFailedException {
         try {
             Balance balance = kinAccount.getBalanceSync();
             return new KinCoreBalance(balance);
@@ -194,6 +299,17 @@ public class KinAccountCoreImpl implements IKinAccount {
         });
     }
 
+    @NonNull
+    @Override
+    public KinFuture<Integer> getStatusAsync() {
+        return KinFuture.supplyAsync(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return getStatusSync();
+            }
+        }, AccountExecutor.getDefault());
+    }
+
     @Override
     public int getStatusSync() throws OperationFailedException {
         try {
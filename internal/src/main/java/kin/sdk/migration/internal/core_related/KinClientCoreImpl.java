@@ -2,6 +2,11 @@ package kin.sdk.migration.internal.core_related;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import kin.core.KinAccount;
 import kin.core.KinClient;
 import kin.core.ServiceProvider;
@@ -12,12 +17,19 @@ import kin.sdk.migration.common.exception.DeleteAccountException;
 import kin.sdk.migration.common.interfaces.IEnvironment;
 import kin.sdk.migration.common.interfaces.IKinAccount;
 import kin.sdk.migration.common.interfaces.IKinClient;
+import kin.sdk.migration.internal.OnAccountsChangedListener;
 
 public class KinClientCoreImpl implements IKinClient {
 
     private final KinCoreEnvironment kinCoreEnvironment;
     private final String appId;
     private final KinClient kinClient;
+    private volatile OnAccountsChangedListener onAccountsChangedListener;
+    private final Object accountIndexLock = new Object();
+    // public address to account index, null until it is needed or after the accounts were changed.
+    private Map<String, Integer> accountIndex;
+    // one canonical wrapper per account, kept only as long as the wrapper is used.
+    private final Map<KinAccount, WeakReference<KinAccountCoreImpl>> accountWrappers = new WeakHashMap<>();
 
     public KinClientCoreImpl(Context context, ServiceProvider serviceProvider, String appId) {
         this(context, serviceProvider, appId, "");
@@ -29,6 +41,13 @@ public class KinClientCoreImpl implements IKinClient {
         kinClient = new KinClient(context, serviceProvider, storeKey);
     }
 
+    /**
+     * @param listener notified after every change of the accounts made through this client, or null to remove it.
+     */
+    public void setOnAccountsChangedListener(@Nullable OnAccountsChangedListener listener) {
+        this.onAccountsChangedListener = listener;
+    }
+
     @Override
     public IEnvironment getEnvironment() {
         return kinCoreEnvironment;
@@ -39,7 +58,8 @@ public class KinClientCoreImpl implements IKinClient {
     public IKinAccount addAccount() throws CreateAccountException {
         try {
             KinAccount kinCoreAccount = kinClient.addAccount();
-            return new KinAccountCoreImpl(appId, kinCoreAccount);
+            onAccountsChanged();
+            return wrap(kinCoreAccount);
         } catch (kin.core.exception.CreateAccountException e) {
             throw new CreateAccountException( e.getCause());
         }
@@ -48,7 +68,22 @@ public class KinClientCoreImpl implements IKinClient {
     @Override
     public IKinAccount getAccount(int index) {
         KinAccount kinCoreAccount = kinClient.getAccount(index);
-		return kinCoreAccount != null ? new KinAccountCoreImpl(appId, kinCoreAccount) : null;
+		return kinCoreAccount != null ? wrap(kinCoreAccount) : null;
+    }
+
+    @Override
+    public KinAccountCoreImpl getAccount(String publicAddress) {
+        int index = indexOf(publicAddress);
+        if (index < 0) {
+            return null;
+        }
+        KinAccount kinCoreAccount = kinClient.getAccount(index);
+        return kinCoreAccount != null ? wrap(kinCoreAccount) : null;
+    }
+
+    @Override
+    public boolean hasAccount(String publicAddress) {
+        return indexOf(publicAddress) >= 0;
     }
 
     @Override
@@ -64,7 +99,10 @@ public class KinClientCoreImpl implements IKinClient {
     @Override
     public void deleteAccount(int index) throws DeleteAccountException {
         try {
+            KinAccount kinAccount = kinClient.getAccount(index);
             kinClient.deleteAccount(index);
+            removeWrapper(kinAccount);
+            onAccountsChanged();
         } catch (kin.core.exception.DeleteAccountException e) {
             throw new DeleteAccountException(e.getCause());
         }
@@ -73,6 +111,10 @@ public class KinClientCoreImpl implements IKinClient {
     @Override
     public void clearAllAccounts() {
         kinClient.clearAllAccounts();
+        synchronized (accountWrappers) {
+            accountWrappers.clear();
+        }
+        onAccountsChanged();
     }
 
     @NonNull
@@ -81,7 +123,8 @@ public class KinClientCoreImpl implements IKinClient {
         throws CryptoException, CreateAccountException, CorruptedDataException {
         try {
             KinAccount kinAccount = kinClient.importAccount(exportedJson, passphrase);
-            return new KinAccountCoreImpl(appId, kinAccount);
+            onAccountsChanged();
+            return wrap(kinAccount);
         } catch (kin.core.exception.CryptoException e) {
             throw new CryptoException(e.getMessage(), e.getCause());
         } catch (kin.core.exception.CreateAccountException e) {
@@ -91,4 +134,68 @@ public class KinClientCoreImpl implements IKinClient {
         }
     }
 
+    private KinAccountCoreImpl wrap(KinAccount kinAccount) {
+        synchronized (accountWrappers) {
+            WeakReference<KinAccountCoreImpl> reference = accountWrappers.get(kinAccount);
+            KinAccountCoreImpl account = reference != null ? reference.get() : null;
+            if (account == null) {
+                account = new KinAccountCoreImpl(appId, kinAccount);
+                accountWrappers.put(kinAccount, new WeakReference<>(account));
+            }
+            return account;
+        }
+    }
+
+    private void removeWrapper(@Nullable KinAccount kinAccount) {
+        if (kinAccount != null) {
+            synchronized (accountWrappers) {
+                accountWrappers.remove(kinAccount);
+            }
+        }
+    }
+
+    private int indexOf(String publicAddress) {
+        if (publicAddress == null) {
+            return -1;
+        }
+        synchronized (accountIndexLock) {
+            if (accountIndex != null) {
+                Integer index = accountIndex.get(publicAddress);
+                if (index != null) {
+                    KinAccount account = kinClient.getAccount(index);
+                    if (account != null && publicAddress.equals(account.getPublicAddress())) {
+                        return index;
+                    }
+                } else if (accountIndex.size() == kinClient.getAccountCount()) {
+                    return -1;
+                }
+            }
+            // the index was not built yet or the accounts were changed without this client knowing about it.
+            accountIndex = buildAccountIndex();
+            Integer index = accountIndex.get(publicAddress);
+            return index != null ? index : -1;
+        }
+    }
+
+    private Map<String, Integer> buildAccountIndex() {
+        int accountCount = kinClient.getAccountCount();
+        Map<String, Integer> index = new HashMap<>(accountCount * 2);
+        for (int i = 0; i < accountCount; i++) {
+            KinAccount account = kinClient.getAccount(i);
+            if (account != null && account.getPublicAddress() != null) {
+                index.put(account.getPublicAddress(), i);
+            }
+        }
+        return index;
+    }
+
+    private void onAccountsChanged() {
+        synchronized (accountIndexLock) {
+            accountIndex = null;
+        }
+        OnAccountsChangedListener listener = onAccountsChangedListener;
+        if (listener != null) {
+            listener.onAccountsChanged(this);
+        }
+    }
 }
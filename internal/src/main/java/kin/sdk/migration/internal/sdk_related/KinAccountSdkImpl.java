@@ -5,6 +5,8 @@ import android.support.annotation.Nullable;
 
 import java.math.BigDecimal;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import kin.sdk.Balance;
 import kin.sdk.EventListener;
@@ -13,6 +15,7 @@ import kin.sdk.ListenerRegistration;
 import kin.sdk.PaymentInfo;
 import kin.sdk.Transaction;
 import kin.sdk.TransactionId;
+import kin.sdk.migration.common.KinFuture;
 import kin.sdk.migration.common.KinSdkVersion;
 import kin.sdk.migration.common.WhitelistResult;
 import kin.sdk.migration.common.exception.AccountNotFoundException;
@@ -20,6 +23,8 @@ import kin.sdk.migration.common.exception.CryptoException;
 import kin.sdk.migration.common.exception.InsufficientKinException;
 import kin.sdk.migration.common.exception.OperationFailedException;
 import kin.sdk.migration.common.exception.TransactionFailedException;
+import kin.sdk.migration.common.exception.WhitelistTransactionFailedException;
+import kin.sdk.migration.common.interfaces.IAsyncWhitelistService;
 import kin.sdk.migration.common.interfaces.IBalance;
 import kin.sdk.migration.common.interfaces.IEventListener;
 import kin.sdk.migration.common.interfaces.IKinAccount;
@@ -27,11 +32,22 @@ import kin.sdk.migration.common.interfaces.IListenerRegistration;
 import kin.sdk.migration.common.interfaces.IPaymentInfo;
 import kin.sdk.migration.common.interfaces.ITransactionId;
 import kin.sdk.migration.common.interfaces.IWhitelistService;
+import kin.sdk.migration.common.interfaces.IWhitelistServiceCallbacks;
+import kin.sdk.migration.internal.AccountExecutor;
+import kin.sdk.migration.internal.BalanceCache;
+import kin.sdk.migration.internal.SerialOperationQueue;
+import kin.sdk.migration.internal.TransactionSequencer;
 import kin.utils.Request;
 
 public class KinAccountSdkImpl implements IKinAccount {
 
+    private static final long WHITELIST_TIMEOUT_MILLIS = 30000;
+
     private final KinAccount kinAccount;
+    // the transactions of this account are sent one after the other, so they don't race on the sequence number.
+    private final TransactionSequencer transactionSequencer = new TransactionSequencer();
+    private volatile BalanceCache balanceCache;
+    private IListenerRegistration balanceCacheRegistration;
 
     KinAccountSdkImpl(KinAccount kinAccount) {
         this.kinAccount = kinAccount;
@@ -71,31 +87,184 @@ public class KinAccountSdkImpl implements IKinAccount {
 
     @NonNull
     @Override
-    public ITransactionId sendTransactionSync(@NonNull String publicAddress, @NonNull BigDecimal amount,
-                                              @NonNull IWhitelistService whitelistService, @Nullable String memo) throws OperationFailedException {
-        try {
-            Transaction transaction = kinAccount.buildTransactionSync(publicAddress, amount, 0, memo);
-            if (whitelistService != null) {
-                TransactionId transactionId = null;
+    public ITransactionId sendTransactionSync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                              final @NonNull IWhitelistService whitelistService, final @Nullable String memo) throws OperationFailedException {
+        checkWhitelistService(whitelistService);
+        return transactionSequencer.submit(new TransactionSequencer.Submission<ITransactionId>() {
+            @Override
+            public ITransactionId submit() throws OperationFailedException {
+                Transaction transaction = buildTransaction(publicAddress, amount, memo);
                 WhitelistResult whitelistTransactionResult = whitelistService.onWhitelistableTransactionReady(new KinSdkTransaction(transaction).getWhitelistableTransaction());
-                if (whitelistTransactionResult.shouldSendTransaction()) {
-                    transactionId = kinAccount.sendWhitelistTransactionSync(whitelistTransactionResult.getWhitelistedTransaction());
-                }
-                return new KinSdkTransactionId(transactionId);
-            } else {
-                throw new IllegalArgumentException("whitelist service listener is null");
+                return sendWhitelistTransaction(whitelistTransactionResult);
             }
-        } catch (kin.sdk.exception.AccountNotFoundException e) {
-            throw new AccountNotFoundException(e.getAccountId());
-        } catch (kin.sdk.exception.InsufficientKinException e) {
-            throw new InsufficientKinException();
-        } catch (kin.sdk.exception.TransactionFailedException e) {
-            throw new TransactionFailedException(e.getTransactionResultCode(), e.getOperationsResultCodes());
+        });
+    }
+
+    @NonNull
+    @Override
+    public KinFuture<ITransactionId> sendTransactionAsync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                                          final @NonNull IWhitelistService whitelistService, final @Nullable String memo) {
+        checkWhitelistService(whitelistService);
+        return transactionSequencer.submitAsync(new SerialOperationQueue.Operation<ITransactionId>() {
+            @NonNull
+            @Override
+            public KinFuture<ITransactionId> start() {
+                // every step runs as its own task, so no thread waits while the previous step is in flight.
+                return buildTransactionAsync(publicAddress, amount, memo)
+                        .thenAsync(new KinFuture.AsyncFunction<Transaction, WhitelistResult>() {
+                            @NonNull
+                            @Override
+                            public KinFuture<WhitelistResult> apply(final Transaction transaction) {
+                                return withWhitelistTimeout(KinFuture.supplyAsync(new Callable<WhitelistResult>() {
+                                    @Override
+                                    public WhitelistResult call() throws Exception {
+                                        return whitelistService.onWhitelistableTransactionReady(new KinSdkTransaction(transaction).getWhitelistableTransaction());
+                                    }
+                                }, AccountExecutor.getDefault()));
+                            }
+                        })
+                        .thenAsync(new KinFuture.AsyncFunction<WhitelistResult, ITransactionId>() {
+                            @NonNull
+                            @Override
+                            public KinFuture<ITransactionId> apply(WhitelistResult whitelistResult) {
+                                return sendWhitelistTransactionAsync(whitelistResult);
+                            }
+                        });
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public KinFuture<ITransactionId> sendTransactionAsync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                                          final @NonNull IAsyncWhitelistService whitelistService, final @Nullable String memo) {
+        if (whitelistService == null) {
+            throw new IllegalArgumentException("whitelist service listener is null");
+        }
+        return transactionSequencer.submitAsync(new SerialOperationQueue.Operation<ITransactionId>() {
+            @NonNull
+            @Override
+            public KinFuture<ITransactionId> start() {
+                return buildTransactionAsync(publicAddress, amount, memo)
+                        .thenAsync(new KinFuture.AsyncFunction<Transaction, WhitelistResult>() {
+                            @NonNull
+                            @Override
+                            public KinFuture<WhitelistResult> apply(Transaction transaction) {
+                                // no thread is held while the whitelist service works.
+                                final KinFuture<WhitelistResult> whitelisted = new KinFuture<>();
+                                whitelistService.whitelistTransaction(new KinSdkTransaction(transaction).getWhitelistableTransaction(),
+                                        new IWhitelistServiceCallbacks() {
+                                            @Override
+                                            public void onSuccess(String whitelistTransaction) {
+                                                whitelisted.complete(new WhitelistResult(whitelistTransaction, true));
+                                            }
+
+                                            @Override
+                                            public void onFailure(Exception e) {
+                                                whitelisted.fail(new WhitelistTransactionFailedException(e));
+                                            }
+                                        });
+                                return withWhitelistTimeout(whitelisted);
+                            }
+                        })
+                        .thenAsync(new KinFuture.AsyncFunction<WhitelistResult, ITransactionId>() {
+                            @NonNull
+                            @Override
+                            public KinFuture<ITransactionId> apply(WhitelistResult whitelistResult) {
+                                return sendWhitelistTransactionAsync(whitelistResult);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Fail the whitelist stage if the whitelist service doesn't answer in time, so a service that never calls back
+     * doesn't hold the transactions of the account that were added after this one.
+     */
+    private static KinFuture<WhitelistResult> withWhitelistTimeout(final KinFuture<WhitelistResult> whitelisted) {
+        final ScheduledFuture<?> timeout = AccountExecutor.getScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                whitelisted.fail(new WhitelistTransactionFailedException("The whitelist service did not answer in "
+                        + WHITELIST_TIMEOUT_MILLIS + "ms"));
+            }
+        }, WHITELIST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        whitelisted.addCallback(new KinFuture.Callback<WhitelistResult>() {
+            @Override
+            public void onResult(WhitelistResult result) {
+                timeout.cancel(false);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                timeout.cancel(false);
+            }
+        }, SerialOperationQueue.DIRECT_EXECUTOR);
+        return whitelisted;
+    }
+
+    private KinFuture<Transaction> buildTransactionAsync(final @NonNull String publicAddress, final @NonNull BigDecimal amount,
+                                                         final @Nullable String memo) {
+        return KinFuture.supplyAsync(new Callable<Transaction>() {
+            @Override
+            public Transaction call() throws Exception {
+                return buildTransaction(publicAddress, amount, memo);
+            }
+        }, AccountExecutor.getDefault());
+    }
+
+    private KinFuture<ITransactionId> sendWhitelistTransactionAsync(final WhitelistResult whitelistResult) {
+        return KinFuture.supplyAsync(new Callable<ITransactionId>() {
+            @Override
+            public ITransactionId call() throws Exception {
+                return sendWhitelistTransaction(whitelistResult);
+            }
+        }, AccountExecutor.getDefault());
+    }
+
+    private static void checkWhitelistService(IWhitelistService whitelistService) {
+        if (whitelistService == null) {
+            throw new IllegalArgumentException("whitelist service listener is null");
+        }
+    }
+
+    private Transaction buildTransaction(@NonNull String publicAddress, @NonNull BigDecimal amount,
+                                         @Nullable String memo) throws OperationFailedException {
+        try {
+            return kinAccount.buildTransactionSync(publicAddress, amount, 0, memo);
         } catch (kin.sdk.exception.OperationFailedException e) {
-            throw new OperationFailedException(e.getMessage(), e.getCause());
+            throw toOperationFailedException(e);
         }
     }
 
+    private ITransactionId sendWhitelistTransaction(WhitelistResult whitelistResult) throws OperationFailedException {
+        TransactionId transactionId = null;
+        if (whitelistResult.shouldSendTransaction()) {
+            try {
+                transactionId = kinAccount.sendWhitelistTransactionSync(whitelistResult.getWhitelistedTransaction());
+                invalidateBalanceCache();
+            } catch (kin.sdk.exception.OperationFailedException e) {
+                throw toOperationFailedException(e);
+            }
+        }
+        return new KinSdkTransactionId(transactionId);
+    }
+
+    private static OperationFailedException toOperationFailedException(kin.sdk.exception.OperationFailedException e) {
+        if (e instanceof kin.sdk.exception.AccountNotFoundException) {
+            return new AccountNotFoundException(((kin.sdk.exception.AccountNotFoundException) e).getAccountId());
+        } else if (e instanceof kin.sdk.exception.InsufficientKinException) {
+            return new InsufficientKinException();
+        } else if (e instanceof kin.sdk.exception.TransactionFailedException) {
+            kin.sdk.exception.TransactionFailedException transactionFailedException =
+                    (kin.sdk.exception.TransactionFailedException) e;
+            return new TransactionFailedException(transactionFailedException.getTransactionResultCode(),
+                    transactionFailedException.getOperationsResultCodes());
+        }
+        return new OperationFailedException(e.getMessage(), e.getCause());
+    }
+
     @NonNull
     @Override
     public Request<IBalance> getBalance() {
@@ -108,9 +277,61 @@ public class KinAccountSdkImpl implements IKinAccount {
         });
     }
 
+    @NonNull
+    @Override
+    public KinFuture<IBalance> getBalanceAsync() {
+        return KinFuture.supplyAsync(new Callable<IBalance>() {
+            @Override
+            public IBalance call() throws Exception {
+                return getBalanceSync();
+            }
+        }, AccountExecutor.getDefault());
+    }
+
     @NonNull
     @Override
     public IBalance getBalanceSync() throws OperationFailedException {
+        BalanceCache balanceCache = this.balanceCache;
+        return balanceCache != null ? balanceCache.get() : fetchBalance();
+    }
+
+    @Override
+    public synchronized void enableBalanceCache(long ttlMillis) {
+        disableBalanceCache();
+        final BalanceCache balanceCache = new BalanceCache(new BalanceCache.Fetcher() {
+            @NonNull
+            @Override
+            public IBalance fetch() throws OperationFailedException {
+                return fetchBalance();
+            }
+        }, ttlMillis);
+        balanceCacheRegistration = addBalanceListener(new IEventListener<IBalance>() {
+            @Override
+            public void onEvent(IBalance balance) {
+                balanceCache.onBalanceUpdated(balance);
+            }
+        });
+        this.balanceCache = balanceCache;
+    }
+
+    @Override
+    public synchronized void disableBalanceCache() {
+        if (balanceCacheRegistration != null) {
+            balanceCacheRegistration.remove();
+            balanceCacheRegistration = null;
+        }
+        balanceCache = null;
+    }
+
+    private void invalidateBalanceCache() {
+        BalanceCache balanceCache = this.balanceCache;
+        if (balanceCache != null) {
+            balanceCache.invalidate();
+        }
+    }
+
+    @NonNull
+    private IBalance fetchBalance() throws OperationFailedException {
         try {
             Balance balance = kinAccount.getBalanceSync();
             return new KinSdkBalance(balance);
@@ -142,6 +363,17 @@ public class KinAccountSdkImpl implements IKinAccount {
         });
     }
 
+    @NonNull
+    @Override
+    public KinFuture<Integer> getStatusAsync() {
+        return KinFuture.supplyAsync(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return getStatusSync();
+            }
+        }, AccountExecutor.getDefault());
+    }
+
     @Override
     public int getStatusSync() throws OperationFailedException {
         try {
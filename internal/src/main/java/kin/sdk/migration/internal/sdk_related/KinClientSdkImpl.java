@@ -2,6 +2,11 @@ package kin.sdk.migration.internal.sdk_related;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import kin.sdk.Environment;
 import kin.sdk.KinAccount;
 import kin.sdk.KinClient;
@@ -12,11 +17,18 @@ import kin.sdk.migration.common.exception.DeleteAccountException;
 import kin.sdk.migration.common.interfaces.IEnvironment;
 import kin.sdk.migration.common.interfaces.IKinAccount;
 import kin.sdk.migration.common.interfaces.IKinClient;
+import kin.sdk.migration.internal.OnAccountsChangedListener;
 
 public class KinClientSdkImpl implements IKinClient {
 
     private final KinSdkEnvironment kinSdkEnvironment;
     private KinClient kinClient;
+    private volatile OnAccountsChangedListener onAccountsChangedListener;
+    private final Object accountIndexLock = new Object();
+    // public address to account index, null until it is needed or after the accounts were changed.
+    private Map<String, Integer> accountIndex;
+    // one canonical wrapper per account, kept only as long as the wrapper is used.
+    private final Map<KinAccount, WeakReference<KinAccountSdkImpl>> accountWrappers = new WeakHashMap<>();
 
     public KinClientSdkImpl(Context context, Environment env, String appId) {
         this(context, env, appId, "");
@@ -27,6 +39,13 @@ public class KinClientSdkImpl implements IKinClient {
         kinClient = new KinClient(context, env, appId, storeKey);
     }
 
+    /**
+     * @param listener notified after every change of the accounts made through this client, or null to remove it.
+     */
+    public void setOnAccountsChangedListener(@Nullable OnAccountsChangedListener listener) {
+        this.onAccountsChangedListener = listener;
+    }
+
     @Override
     public IEnvironment getEnvironment() {
         return kinSdkEnvironment;
@@ -36,7 +55,9 @@ public class KinClientSdkImpl implements IKinClient {
     @Override
     public IKinAccount addAccount() throws CreateAccountException {
         try {
-            return new KinAccountSdkImpl(kinClient.addAccount());
+            KinAccount kinSdkAccount = kinClient.addAccount();
+            onAccountsChanged();
+            return wrap(kinSdkAccount);
         } catch (kin.sdk.exception.CreateAccountException e) {
             throw new CreateAccountException(e.getCause());
         }
@@ -45,7 +66,22 @@ public class KinClientSdkImpl implements IKinClient {
     @Override
     public IKinAccount getAccount(int index) {
         KinAccount kinSdkAccount = kinClient.getAccount(index);
-        return kinSdkAccount != null ? new KinAccountSdkImpl(kinSdkAccount) : null;
+        return kinSdkAccount != null ? wrap(kinSdkAccount) : null;
+    }
+
+    @Override
+    public KinAccountSdkImpl getAccount(String publicAddress) {
+        int index = indexOf(publicAddress);
+        if (index < 0) {
+            return null;
+        }
+        KinAccount kinSdkAccount = kinClient.getAccount(index);
+        return kinSdkAccount != null ? wrap(kinSdkAccount) : null;
+    }
+
+    @Override
+    public boolean hasAccount(String publicAddress) {
+        return indexOf(publicAddress) >= 0;
     }
 
     @Override
@@ -61,7 +97,10 @@ public class KinClientSdkImpl implements IKinClient {
     @Override
     public void deleteAccount(int index) throws DeleteAccountException {
         try {
+            KinAccount kinAccount = kinClient.getAccount(index);
             kinClient.deleteAccount(index);
+            removeWrapper(kinAccount);
+            onAccountsChanged();
         } catch (kin.sdk.exception.DeleteAccountException e) {
            throw new DeleteAccountException(e.getCause());
         }
@@ -70,6 +109,10 @@ public class KinClientSdkImpl implements IKinClient {
     @Override
     public void clearAllAccounts() {
         kinClient.clearAllAccounts();
+        synchronized (accountWrappers) {
+            accountWrappers.clear();
+        }
+        onAccountsChanged();
     }
 
     @NonNull
@@ -78,7 +121,8 @@ public class KinClientSdkImpl implements IKinClient {
             throws CryptoException, CreateAccountException, CorruptedDataException {
         try {
             KinAccount kinAccount = kinClient.importAccount(exportedJson, passphrase);
-            return new KinAccountSdkImpl(kinAccount);
+            onAccountsChanged();
+            return wrap(kinAccount);
         } catch (kin.sdk.exception.CryptoException e) {
             throw new CryptoException(e.getMessage(), e.getCause());
         } catch (kin.sdk.exception.CreateAccountException e) {
@@ -87,7 +131,69 @@ public class KinClientSdkImpl implements IKinClient {
             throw new CorruptedDataException(e.getMessage(), e.getCause());
         }
     }
-}
 
+    private KinAccountSdkImpl wrap(KinAccount kinAccount) {
+        synchronized (accountWrappers) {
+            WeakReference<KinAccountSdkImpl> reference = accountWrappers.get(kinAccount);
+            KinAccountSdkImpl account = reference != null ? reference.get() : null;
+            if (account == null) {
+                account = new KinAccountSdkImpl(kinAccount);
+                accountWrappers.put(kinAccount, new WeakReference<>(account));
+            }
+            return account;
+        }
+    }
 
+    private void removeWrapper(@Nullable KinAccount kinAccount) {
+        if (kinAccount != null) {
+            synchronized (accountWrappers) {
+                accountWrappers.remove(kinAccount);
+            }
+        }
+    }
 
+    private int indexOf(String publicAddress) {
+        if (publicAddress == null) {
+            return -1;
+        }
+        synchronized (accountIndexLock) {
+            if (accountIndex != null) {
+                Integer index = accountIndex.get(publicAddress);
+                if (index != null) {
+                    KinAccount account = kinClient.getAccount(index);
+                    if (account != null && publicAddress.equals(account.getPublicAddress())) {
+                        return index;
+                    }
+                } else if (accountIndex.size() == kinClient.getAccountCount()) {
+                    return -1;
+                }
+            }
+            // the index was not built yet or the accounts were changed without this client knowing about it.
+            accountIndex = buildAccountIndex();
+            Integer index = accountIndex.get(publicAddress);
+            return index != null ? index : -1;
+        }
+    }
+
+    private Map<String, Integer> buildAccountIndex() {
+        int accountCount = kinClient.getAccountCount();
+        Map<String, Integer> index = new HashMap<>(accountCount * 2);
+        for (int i = 0; i < accountCount; i++) {
+            KinAccount account = kinClient.getAccount(i);
+            if (account != null && account.getPublicAddress() != null) {
+                index.put(account.getPublicAddress(), i);
+            }
+        }
+        return index;
+    }
+
+    private void onAccountsChanged() {
+        synchronized (accountIndexLock) {
+            accountIndex = null;
+        }
+        OnAccountsChangedListener listener = onAccountsChangedListener;
+        if (listener != null) {
+            listener.onAccountsChanged(this);
+        }
+    }
+}
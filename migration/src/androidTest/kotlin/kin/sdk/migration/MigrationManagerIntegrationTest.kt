@@ -1,13 +1,9 @@
 package kin.sdk.migration
 
-import android.content.Context
-import android.content.SharedPreferences
 import android.support.test.InstrumentationRegistry
 import android.support.test.filters.LargeTest
 import kin.sdk.migration.IntegConsts.TEST_CORE_URL_FUND
 import kin.sdk.migration.IntegConsts.TEST_SDK_URL_CREATE_ACCOUNT
-import kin.sdk.migration.MigrationManager.KIN_MIGRATION_COMPLETED_KEY
-import kin.sdk.migration.MigrationManager.KIN_MIGRATION_MODULE_PREFERENCE_FILE_KEY
 import kin.sdk.migration.bi.IMigrationEventsListener
 import kin.sdk.migration.common.KinSdkVersion
 import kin.sdk.migration.common.exception.*
@@ -83,7 +79,7 @@ class MigrationManagerIntegrationTest {
     }
 
     private fun removeData() {
-        clearSharedPreferences()
+        clearMigrationState()
         clearAllAccounts()
     }
 
@@ -91,9 +87,8 @@ class MigrationManagerIntegrationTest {
         migrationManagerOldKin.getKinClient(KinSdkVersion.OLD_KIN_SDK).clearAllAccounts()
     }
 
-    private fun clearSharedPreferences() {
-        val sharedPreferences = getSharedPreferences()
-        sharedPreferences.edit().clear().apply()
+    private fun clearMigrationState() {
+        getMigrationStateCache().clear()
     }
 
     @Test
@@ -297,7 +292,7 @@ class MigrationManagerIntegrationTest {
         var error: Error? = null
         val latch = CountDownLatch(1)
         val kinClient = getNewKinClientAfterMigration()
-        clearSharedPreferences()
+        clearMigrationState()
         val account = kinClient?.getAccount(kinClient.accountCount - 1)
         if (withBalance) { //TODO do i really want to fund the new migrated account???
             fakeKinIssuer.fundWithKin(String.format(TEST_SDK_URL_CREATE_ACCOUNT + fundKinAmount, account))
@@ -381,7 +376,7 @@ class MigrationManagerIntegrationTest {
         val assertFailsWith = assertFailsWith(TransactionFailedException::class) {
             val oldAccount1 = createActivateAndFundOldKinAccount()
             getKinClientOnNewKinBlockchain(oldAccount1?.publicAddress)
-            clearSharedPreferences()
+            clearMigrationState()
             val kinClient = migrationManagerOldKin.getKinClient(KinSdkVersion.OLD_KIN_SDK)
             val oldAccount2 = createAndFundAccount(kinClient)
             oldAccount2?.sendTransactionSync(oldAccount1?.publicAddress.orEmpty(), BigDecimal(10), null)
@@ -501,8 +496,7 @@ class MigrationManagerIntegrationTest {
     }
 
     private fun isAccountAlreadyMigrated(publicAddress: String?): Boolean {
-        val sharedPreferences = getSharedPreferences()
-        return sharedPreferences.getBoolean(KIN_MIGRATION_COMPLETED_KEY + publicAddress, false)
+        return getMigrationStateCache().isMigrated(publicAddress)
     }
 
     // Activate account on the blockchain.
@@ -589,8 +583,8 @@ class MigrationManagerIntegrationTest {
         return oldKinClient
     }
 
-    private fun getSharedPreferences(): SharedPreferences {
-        return InstrumentationRegistry.getTargetContext().getSharedPreferences(KIN_MIGRATION_MODULE_PREFERENCE_FILE_KEY, Context.MODE_PRIVATE)
+    private fun getMigrationStateCache(): MigrationStateCache {
+        return MigrationStateCache.getInstance(MigrationStateCache.getDefaultStore(InstrumentationRegistry.getTargetContext()))
     }
 
     companion object {
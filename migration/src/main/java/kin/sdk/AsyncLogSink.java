@@ -0,0 +1,86 @@
+package kin.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands the log entries to another {@link LogSink} on a dedicated thread, so the logging threads never wait for
+ * logcat or file writes.
+ * <p>The entries wait in a bounded queue, when the queue is full new entries are dropped and counted, see
+ * {@link #getDroppedCount()}.</p>
+ */
+public class AsyncLogSink implements LogSink {
+
+    private static final String THREAD_NAME = "kin-migration-logger";
+
+    private final LogSink sink;
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong droppedCount;
+
+    /**
+     * @param sink the sink that will write the entries.
+     * @param capacity the number of entries that can wait to be written.
+     */
+    public AsyncLogSink(@NonNull LogSink sink, int capacity) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.droppedCount = new AtomicLong();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void write(@NonNull Logger.Level level, @NonNull String tag, @NonNull String message,
+        @Nullable Throwable throwable) {
+        if (!queue.offer(new Entry(level, tag, message, throwable))) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of entries that were dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void drain() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                sink.write(entry.level, entry.tag, entry.message, entry.throwable);
+            } catch (RuntimeException ignored) {
+                // a failing sink must not stop the logging thread.
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final Logger.Level level;
+        private final String tag;
+        private final String message;
+        private final Throwable throwable;
+
+        Entry(Logger.Level level, String tag, String message, Throwable throwable) {
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+            this.throwable = throwable;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package kin.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes the log entries to a file of bounded size.
+ * <p>When the file reaches its max size it's renamed to {@code <name>.1}, replacing the previous one, and a new file
+ * is started. So at most twice the max size is kept on disk, and the latest entries are always there.</p>
+ * <p>Every entry is flushed to the file when it's written, so wrap this sink with an {@link AsyncLogSink} to keep the
+ * file writes off the logging threads.</p>
+ */
+public class FileRingBufferLogSink implements LogSink {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String ROTATED_SUFFIX = ".1";
+
+    private final File file;
+    private final long maxFileBytes;
+    private final SimpleDateFormat dateFormat;
+    private Writer writer;
+    private long fileBytes;
+
+    /**
+     * @param file the log file, created if it doesn't exist and appended to if it does.
+     * @param maxFileBytes the size from which the file is rotated.
+     */
+    public FileRingBufferLogSink(@NonNull File file, long maxFileBytes) {
+        if (maxFileBytes < 1) {
+            throw new IllegalArgumentException("maxFileBytes must be at least 1");
+        }
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+    }
+
+    @Override
+    public synchronized void write(@NonNull Logger.Level level, @NonNull String tag, @NonNull String message,
+        @Nullable Throwable throwable) {
+        StringBuilder builder = new StringBuilder(message.length() + 48)
+            .append(dateFormat.format(new Date()))
+            .append(' ').append(level.name().charAt(0))
+            .append(' ').append(tag)
+            .append(": ").append(message)
+            .append('\n');
+        if (throwable != null) {
+            StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            builder.append(stackTrace);
+        }
+        try {
+            append(builder.toString());
+        } catch (IOException e) {
+            // there is nowhere to report it, drop the entry and start over with a new file next time.
+            closeWriter();
+        }
+    }
+
+    /**
+     * @return the rotated file, which holds the entries that came before the ones in the current file.
+     */
+    @NonNull
+    public File getRotatedFile() {
+        return new File(file.getPath() + ROTATED_SUFFIX);
+    }
+
+    private void append(String entry) throws IOException {
+        if (writer == null) {
+            fileBytes = file.length();
+            writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+        }
+        byte[] bytes = entry.getBytes(UTF_8);
+        if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+            rotate();
+        }
+        writer.write(entry);
+        writer.flush();
+        fileBytes += bytes.length;
+    }
+
+    private void rotate() throws IOException {
+        closeWriter();
+        File rotatedFile = getRotatedFile();
+        if (rotatedFile.exists() && !rotatedFile.delete()) {
+            throw new IOException("Failed to delete " + rotatedFile);
+        }
+        if (!file.renameTo(rotatedFile)) {
+            throw new IOException("Failed to rotate " + file);
+        }
+        writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+        fileBytes = 0;
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+            writer = null;
+        }
+    }
+}
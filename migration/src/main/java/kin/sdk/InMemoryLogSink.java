@@ -0,0 +1,81 @@
+package kin.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the latest log entries in memory, mostly useful for tests and for attaching recent logs to a bug report.
+ */
+public class InMemoryLogSink implements LogSink {
+
+    private final int capacity;
+    private final ArrayDeque<Entry> entries;
+
+    /**
+     * @param capacity the number of entries to keep, older entries are dropped.
+     */
+    public InMemoryLogSink(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.entries = new ArrayDeque<>(Math.min(capacity, 256));
+    }
+
+    @Override
+    public synchronized void write(@NonNull Logger.Level level, @NonNull String tag, @NonNull String message,
+        @Nullable Throwable throwable) {
+        if (entries.size() == capacity) {
+            entries.pollFirst();
+        }
+        entries.addLast(new Entry(level, message, throwable));
+    }
+
+    /**
+     * @return a copy of the kept entries, oldest first.
+     */
+    @NonNull
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public static final class Entry {
+
+        private final Logger.Level level;
+        private final String message;
+        private final Throwable throwable;
+
+        Entry(Logger.Level level, String message, Throwable throwable) {
+            this.level = level;
+            this.message = message;
+            this.throwable = throwable;
+        }
+
+        @NonNull
+        public Logger.Level getLevel() {
+            return level;
+        }
+
+        @NonNull
+        public String getMessage() {
+            return message;
+        }
+
+        @Nullable
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        @Override
+        public String toString() {
+            return level + " " + message;
+        }
+    }
+}
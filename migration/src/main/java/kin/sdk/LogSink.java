@@ -0,0 +1,14 @@
+package kin.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The destination of the {@link Logger} entries.
+ * <p>Called on the logging thread, implementations that do I/O should be wrapped with an {@link AsyncLogSink}.</p>
+ */
+public interface LogSink {
+
+    void write(@NonNull Logger.Level level, @NonNull String tag, @NonNull String message,
+        @Nullable Throwable throwable);
+}
@@ -0,0 +1,48 @@
+package kin.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Writes the log entries to logcat, the default {@link LogSink}.
+ */
+public class LogcatSink implements LogSink {
+
+    @Override
+    public void write(@NonNull Logger.Level level, @NonNull String tag, @NonNull String message,
+        @Nullable Throwable throwable) {
+        if (throwable != null) {
+            message = message + "\n" + getPrintableStackTrace(throwable);
+        }
+        switch (level) {
+            case DEBUG:
+                Log.d(tag, message);
+                break;
+            case INFO:
+                Log.i(tag, message);
+                break;
+            case WARN:
+                Log.w(tag, message);
+                break;
+            case ERROR:
+                Log.e(tag, message);
+                break;
+        }
+    }
+
+    static String getPrintableStackTrace(Throwable t) {
+        String stackTrace = Log.getStackTraceString(t);
+        // print UnknownHostException as well, as Android filtering it out
+        if (TextUtils.isEmpty(stackTrace)) {
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            t.printStackTrace(pw);
+            stackTrace = sw.toString();
+        }
+        return stackTrace;
+    }
+}
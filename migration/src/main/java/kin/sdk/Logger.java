@@ -1,41 +1,139 @@
 package kin.sdk;
 
-import android.text.TextUtils;
-import android.util.Log;
-
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+/**
+ * The logger of the migration module.
+ * <p>Messages can take up to three parameters which replace the {@code {}} placeholders of the message, the message
+ * is only built if the level is enabled, so a disabled log call doesn't allocate. Call sites with primitive or
+ * expensive parameters should check {@link #isLoggable(Level)} first.</p>
+ * <p>The log entries are written to a {@link LogSink}, by default to logcat.</p>
+ */
 public class Logger {
 
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
     private static final String TAG = "KinMigrationModule";
-    private static boolean shouldLog;
+    private static final String PLACEHOLDER = "{}";
+    private static volatile boolean shouldLog;
+    private static volatile Level minLevel = Level.DEBUG;
+    private static volatile LogSink sink = new LogcatSink();
 
     public static void enable(boolean enable) {
         shouldLog = enable;
     }
 
+    /**
+     * @param level the lowest level that is logged, default is {@link Level#DEBUG}.
+     */
+    public static void setLevel(@NonNull Level level) {
+        minLevel = level;
+    }
+
+    /**
+     * @param logSink where the log entries are written, default is logcat.
+     */
+    public static void setSink(@NonNull LogSink logSink) {
+        sink = logSink;
+    }
+
+    public static boolean isLoggable(@NonNull Level level) {
+        return shouldLog && level.ordinal() >= minLevel.ordinal();
+    }
+
     public static void d(String message) {
-        if (shouldLog) {
-            Log.d(TAG, message);
+        if (isLoggable(Level.DEBUG)) {
+            write(Level.DEBUG, message, null);
+        }
+    }
+
+    public static void d(String format, Object arg) {
+        if (isLoggable(Level.DEBUG)) {
+            write(Level.DEBUG, format(format, arg, null, null, 1), null);
+        }
+    }
+
+    public static void d(String format, Object arg1, Object arg2) {
+        if (isLoggable(Level.DEBUG)) {
+            write(Level.DEBUG, format(format, arg1, arg2, null, 2), null);
+        }
+    }
+
+    public static void d(String format, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(Level.DEBUG)) {
+            write(Level.DEBUG, format(format, arg1, arg2, arg3, 3), null);
+        }
+    }
+
+    public static void i(String message) {
+        if (isLoggable(Level.INFO)) {
+            write(Level.INFO, message, null);
+        }
+    }
+
+    public static void i(String format, Object arg) {
+        if (isLoggable(Level.INFO)) {
+            write(Level.INFO, format(format, arg, null, null, 1), null);
+        }
+    }
+
+    public static void i(String format, Object arg1, Object arg2) {
+        if (isLoggable(Level.INFO)) {
+            write(Level.INFO, format(format, arg1, arg2, null, 2), null);
+        }
+    }
+
+    public static void w(String message) {
+        if (isLoggable(Level.WARN)) {
+            write(Level.WARN, message, null);
+        }
+    }
+
+    public static void w(String format, Object arg) {
+        if (isLoggable(Level.WARN)) {
+            write(Level.WARN, format(format, arg, null, null, 1), null);
+        }
+    }
+
+    public static void w(String format, Object arg1, Object arg2) {
+        if (isLoggable(Level.WARN)) {
+            write(Level.WARN, format(format, arg1, arg2, null, 2), null);
         }
     }
 
     public static void e(String message, Exception e) {
-        if (shouldLog) {
-            Log.e(TAG, message + "\n" + getPrintableStackTrace(e));
+        if (isLoggable(Level.ERROR)) {
+            write(Level.ERROR, message, e);
         }
     }
 
-    private static String getPrintableStackTrace(Throwable t) {
-        String stackTrace = Log.getStackTraceString(t);
-        // print UnknownHostException as well, as Android filtering it out
-        if (TextUtils.isEmpty(stackTrace)) {
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            t.printStackTrace(pw);
-            stackTrace = sw.toString();
+    public static void e(String format, Object arg, Exception e) {
+        if (isLoggable(Level.ERROR)) {
+            write(Level.ERROR, format(format, arg, null, null, 1), e);
+        }
+    }
+
+    private static void write(Level level, String message, @Nullable Throwable throwable) {
+        sink.write(level, TAG, message, throwable);
+    }
+
+    static String format(String format, Object arg1, Object arg2, Object arg3, int argsCount) {
+        StringBuilder builder = new StringBuilder(format.length() + 16 * argsCount);
+        int start = 0;
+        for (int i = 0; i < argsCount; i++) {
+            int index = format.indexOf(PLACEHOLDER, start);
+            if (index < 0) {
+                break;
+            }
+            builder.append(format, start, index).append(i == 0 ? arg1 : i == 1 ? arg2 : arg3);
+            start = index + PLACEHOLDER.length();
         }
-        return stackTrace;
+        return builder.append(format, start, format.length()).toString();
     }
 }
@@ -3,6 +3,9 @@ package kin.sdk.migration;
 import static kin.sdk.migration.Commons.MAX_RETRIES;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RunnableFuture;
 import kin.sdk.Logger;
 import kin.sdk.migration.bi.IMigrationEventsListener.BurnReason;
 import kin.sdk.migration.bi.IMigrationEventsListener.CheckBurnReason;
@@ -12,14 +15,52 @@ import kin.sdk.migration.common.exception.MigrationFailedException;
 import kin.sdk.migration.common.exception.OperationFailedException;
 import kin.sdk.migration.common.interfaces.ITransactionId;
 import kin.sdk.migration.internal.core_related.KinAccountCoreImpl;
-import org.stellar.sdk.responses.HttpResponseException;
 
 class AccountBurner {
 
+	static final String CHECK_BURN_OPERATION = "checkAccountBurnedState";
+	static final String BURN_OPERATION = "burnAccount";
+	private static final String HORIZON_TARGET = "kin2_horizon";
+	private static final long RETRY_BASE_DELAY_MILLIS = 250;
+	private static final long RETRY_MAX_DELAY_MILLIS = 4000;
+	private static final long RETRY_DEADLINE_MILLIS = 30000;
+	// shared by all the burners so the retry budget and circuit breaker of the Kin2 blockchain are process wide.
+	private static final RetryPolicy RETRY_POLICY = new RetryPolicy(MAX_RETRIES,
+		new ExponentialBackoff(RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS), RETRY_DEADLINE_MILLIS,
+		new RetryClassifier());
+
 	private final MigrationEventsNotifier eventsNotifier;
+	private final RetryPolicy retryPolicy;
+	private final MigrationHandle handle;
+	private final MigrationStateCache checkpoints;
 
 	AccountBurner(MigrationEventsNotifier eventsNotifier) {
+		this(eventsNotifier, null);
+	}
+
+	/**
+	 * @param handle the migration this burner works for, the retries stop once it is stopped.
+	 */
+	AccountBurner(MigrationEventsNotifier eventsNotifier, @Nullable MigrationHandle handle) {
+		this(eventsNotifier, handle, null);
+	}
+
+	/**
+	 * @param handle the migration this burner works for, the retries stop once it is stopped.
+	 * @param checkpoints where the burn outcome is checkpointed, so a migration that is started again after it was
+	 * interrupted(for example by the process being killed) skips the burn if it is already known to be done.
+	 */
+	AccountBurner(MigrationEventsNotifier eventsNotifier, @Nullable MigrationHandle handle,
+		@Nullable MigrationStateCache checkpoints) {
+		this(eventsNotifier, RETRY_POLICY, handle, checkpoints);
+	}
+
+	AccountBurner(MigrationEventsNotifier eventsNotifier, RetryPolicy retryPolicy, @Nullable MigrationHandle handle,
+		@Nullable MigrationStateCache checkpoints) {
 		this.eventsNotifier = eventsNotifier;
+		this.retryPolicy = retryPolicy;
+		this.handle = handle;
+		this.checkpoints = checkpoints;
 	}
 
 	/**
@@ -30,14 +71,33 @@ class AccountBurner {
 	 */
 	@NonNull
 	BurnReason start(final KinAccountCoreImpl account)
+		throws MigrationFailedException {
+		return start(account, null);
+	}
+
+	/**
+	 * Start the burn account process which checks if the account was already burned and if not then burned it.
+	 *
+	 * @param account is the kin account.
+	 * @param speculativeBurnState is a burn state check of this account that was started ahead of time(see {@link
+	 * #probeAccountBurnedState(KinAccountCoreImpl)}), or null if the state should be checked now.
+	 * @return the reason.
+	 */
+	@NonNull
+	BurnReason start(final KinAccountCoreImpl account, @Nullable RunnableFuture<CheckBurnReason> speculativeBurnState)
 		throws MigrationFailedException {
 		String publicAddress = account.getPublicAddress();
 		if (publicAddress != null) {
-			CheckBurnReason state = checkAccountBurnedState(account);
+			if (isBurnCheckpointed(publicAddress)) {
+				Logger.d("account was already burned by a previous migration attempt, skipping the burn");
+				return BurnReason.ALREADY_BURNED;
+			}
+			CheckBurnReason state = checkAccountBurnedState(account, speculativeBurnState);
 			switch (state) {
 				case NOT_BURNED:
 					return burnAccount(publicAddress, account);
 				case ALREADY_BURNED:
+					checkpointBurned(publicAddress, null);
 					return BurnReason.ALREADY_BURNED;
 				case NO_ACCOUNT:
 					return BurnReason.NO_ACCOUNT;
@@ -51,47 +111,125 @@ class AccountBurner {
 		}
 	}
 
+	/**
+	 * Check the burn state of the account without notifying any event, so the check can run speculatively and its
+	 * result can be discarded if it turns out not to be needed.
+	 *
+	 * @param kinAccountCore is the kin account.
+	 * @return the burn state of the account.
+	 * @throws OperationFailedException if the state couldn't be resolved, after all the retries.
+	 */
 	@NonNull
-	private CheckBurnReason checkAccountBurnedState(final KinAccountCoreImpl kinAccountCore)
-		throws MigrationFailedException {
-		String publicAddress = kinAccountCore.getPublicAddress();
-		eventsNotifier.onCheckBurnStarted(publicAddress);
-		int retryCounter = 0;
+	CheckBurnReason probeAccountBurnedState(final KinAccountCoreImpl kinAccountCore) throws OperationFailedException {
+		MigrationMetrics metrics = MigrationMetrics.getInstance();
+		long startNanos = metrics.begin(MigrationMetrics.Stage.BURN_CHECK);
+		boolean success = false;
+		try {
+			CheckBurnReason state = probeWithRetries(kinAccountCore);
+			success = true;
+			return state;
+		} finally {
+			metrics.end(MigrationMetrics.Stage.BURN_CHECK, startNanos, success);
+		}
+	}
+
+	private CheckBurnReason probeWithRetries(KinAccountCoreImpl kinAccountCore) throws OperationFailedException {
+		RetryPolicy.Attempts attempts = retryPolicy.newAttempts(CHECK_BURN_OPERATION, HORIZON_TARGET,
+			eventsNotifier, handle);
 		while (true) {
+			beginAttempt(attempts);
 			try {
-				if (kinAccountCore.isAccountBurned()) {
-					eventsNotifier
-						.onCheckBurnSucceeded(publicAddress, CheckBurnReason.ALREADY_BURNED);
-					return CheckBurnReason.ALREADY_BURNED;
-				} else {
-					eventsNotifier
-						.onCheckBurnSucceeded(publicAddress, CheckBurnReason.NOT_BURNED);
-					return CheckBurnReason.NOT_BURNED;
-				}
+				boolean isAccountBurned = kinAccountCore.isAccountBurned();
+				attempts.onSuccess();
+				return isAccountBurned ? CheckBurnReason.ALREADY_BURNED : CheckBurnReason.NOT_BURNED;
 			} catch (AccountNotFoundException e) {
-				eventsNotifier.onCheckBurnSucceeded(publicAddress, CheckBurnReason.NO_ACCOUNT);
+				attempts.onSuccess();
 				return CheckBurnReason.NO_ACCOUNT;
 			} catch (AccountNotActivatedException e) {
-				eventsNotifier.onCheckBurnSucceeded(publicAddress, CheckBurnReason.NO_TRUSTLINE);
+				attempts.onSuccess();
 				return CheckBurnReason.NO_TRUSTLINE;
 			} catch (OperationFailedException e) {
-				if (shouldRetry(retryCounter, e)) {
-					Logger.d("checkAccountBurnedState: retry number " + retryCounter);
-					retryCounter++;
+				if (shouldRetry(attempts, e)) {
 					continue;
 				}
-				eventsNotifier.onCheckBurnFailed(publicAddress, e);
-				throw new MigrationFailedException("Checking if the old account is burned has failed", e);
+				throw e;
+			} catch (RuntimeException e) {
+				attempts.onFailure();
+				throw e;
+			}
+		}
+	}
+
+	@NonNull
+	private CheckBurnReason checkAccountBurnedState(final KinAccountCoreImpl kinAccountCore,
+		@Nullable RunnableFuture<CheckBurnReason> speculativeBurnState) throws MigrationFailedException {
+		String publicAddress = kinAccountCore.getPublicAddress();
+		eventsNotifier.onCheckBurnStarted(publicAddress);
+		try {
+			CheckBurnReason state = null;
+			if (speculativeBurnState != null) {
+				state = getSpeculativeBurnState(speculativeBurnState);
 			}
+			if (state == null) {
+				state = probeAccountBurnedState(kinAccountCore);
+			}
+			eventsNotifier.onCheckBurnSucceeded(publicAddress, state);
+			return state;
+		} catch (OperationFailedException e) {
+			eventsNotifier.onCheckBurnFailed(publicAddress, e);
+			throw new MigrationFailedException("Checking if the old account is burned has failed", e);
+		}
+	}
+
+	@Nullable
+	private CheckBurnReason getSpeculativeBurnState(RunnableFuture<CheckBurnReason> speculativeBurnState)
+		throws OperationFailedException {
+		// If the check is still waiting for a free thread then run it here instead of waiting for it, if it is
+		// already running or done then this call does nothing.
+		speculativeBurnState.run();
+		try {
+			return speculativeBurnState.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationFailedException("Interrupted while waiting for the burn state check", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof OperationFailedException) {
+				throw (OperationFailedException) cause;
+			}
+			throw new OperationFailedException(cause);
 		}
 	}
 
 	private BurnReason burnAccount(String publicAddress, KinAccountCoreImpl account) throws MigrationFailedException {
+		MigrationMetrics metrics = MigrationMetrics.getInstance();
+		long startNanos = metrics.begin(MigrationMetrics.Stage.BURN_TRANSACTION);
+		boolean success = false;
+		try {
+			BurnReason burnReason = burnWithRetries(publicAddress, account);
+			success = true;
+			return burnReason;
+		} finally {
+			metrics.end(MigrationMetrics.Stage.BURN_TRANSACTION, startNanos, success);
+		}
+	}
+
+	private BurnReason burnWithRetries(String publicAddress, KinAccountCoreImpl account)
+		throws MigrationFailedException {
 		eventsNotifier.onBurnStarted(publicAddress);
-		int retryCounter = 0;
+		RetryPolicy.Attempts attempts = retryPolicy.newAttempts(BURN_OPERATION, HORIZON_TARGET, eventsNotifier,
+			handle);
 		while (true) {
+			// a refused attempt is not a failed burn, it must not reach the retry handling below.
+			try {
+				beginAttempt(attempts);
+			} catch (OperationFailedException e) {
+				eventsNotifier.onBurnFailed(publicAddress, e);
+				throw new MigrationFailedException("Burning the old account failed", e);
+			}
 			try {
 				ITransactionId transactionId = account.sendBurnTransactionSync(publicAddress);
+				attempts.onSuccess();
 				if (transactionId.id() == null || transactionId.id().isEmpty()) {
 					MigrationFailedException exception =
 						new MigrationFailedException(
@@ -99,37 +237,56 @@ class AccountBurner {
 					eventsNotifier.onBurnFailed(publicAddress, exception);
 					throw exception;
 				} else {
+					checkpointBurned(publicAddress, transactionId.id());
 					eventsNotifier.onBurnSucceeded(publicAddress, BurnReason.BURNED);
 					return BurnReason.BURNED;
 				}
 			} catch (AccountNotFoundException e) {
+				attempts.onSuccess();
 				eventsNotifier.onBurnSucceeded(publicAddress, BurnReason.NO_ACCOUNT);
 				return BurnReason.NO_ACCOUNT;
 			} catch (AccountNotActivatedException e) {
+				attempts.onSuccess();
 				eventsNotifier.onBurnSucceeded(publicAddress, BurnReason.NO_TRUSTLINE);
 				return BurnReason.NO_TRUSTLINE;
+			} catch (MigrationFailedException e) {
+				throw e;
 			} catch (OperationFailedException e) {
-				if (shouldRetry(retryCounter, e)) {
-					Logger.d("burnAccount: retry number " + retryCounter);
-					retryCounter++;
+				if (shouldRetry(attempts, e)) {
 					continue;
 				}
 				eventsNotifier.onBurnFailed(publicAddress, e);
 				throw new MigrationFailedException("Burning the old account failed", e);
+			} catch (RuntimeException e) {
+				attempts.onFailure();
+				throw e;
 			}
 		}
 	}
 
-	private boolean shouldRetry(int retryCounter, Throwable e) {
-		boolean shouldRetry = false;
-		Throwable cause = e.getCause();
-		if (cause instanceof HttpResponseException) {
-			HttpResponseException httpException = (HttpResponseException) cause;
-			if (httpException.getStatusCode() >= 500 && retryCounter < MAX_RETRIES) {
-				shouldRetry = true;
-			}
+	private boolean isBurnCheckpointed(String publicAddress) {
+		if (checkpoints == null) {
+			return false;
 		}
-		return shouldRetry;
+		MigrationState checkpoint = checkpoints.getState(publicAddress);
+		return checkpoint != null && checkpoint.isBurned();
+	}
+
+	private void checkpointBurned(String publicAddress, @Nullable String burnTransactionId) {
+		if (checkpoints != null) {
+			checkpoints.setBurned(publicAddress, burnTransactionId);
+		}
+	}
+
+	private void beginAttempt(RetryPolicy.Attempts attempts) throws OperationFailedException {
+		if (!attempts.begin()) {
+			throw new OperationFailedException("Too many recent failures of the Kin2 blockchain, request was not sent");
+		}
+	}
+
+	private boolean shouldRetry(RetryPolicy.Attempts attempts, OperationFailedException e) {
+		long delay = attempts.nextRetryDelayMillis(e);
+		return delay != RetryPolicy.NO_RETRY && attempts.awaitRetry(delay);
 	}
 
-}
\ No newline at end of file
+}
@@ -3,18 +3,26 @@ package kin.sdk.migration;
 import static kin.sdk.migration.Commons.MAX_RETRIES;
 
 import android.support.annotation.NonNull;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import android.support.annotation.Nullable;
+import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import kin.sdk.Logger;
 import kin.sdk.migration.bi.IMigrationEventsListener.RequestAccountMigrationSuccessReason;
 import kin.sdk.migration.bi.IMigrationEventsListener.SelectedSdkReason;
 import kin.sdk.migration.common.KinSdkVersion;
 import kin.sdk.migration.common.exception.MigrationFailedException;
-import okhttp3.Interceptor;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -24,135 +32,299 @@ import okhttp3.ResponseBody;
 class AccountMigrator {
 
 	private static final int TIMEOUT = 30;
+	private static final int MAX_IDLE_CONNECTIONS = 5;
+	private static final long KEEP_ALIVE_DURATION_MINUTES = 5;
+	private static final long RETRY_BASE_DELAY_MILLIS = 500;
+	private static final long RETRY_MAX_DELAY_MILLIS = 10000;
+	private static final long RETRY_DEADLINE_MILLIS = 60000;
+	// shared by all the clients so the retry budget and circuit breaker of the migration service are process wide.
+	private static final RetryPolicy RETRY_POLICY = new RetryPolicy(MAX_RETRIES,
+		new ExponentialBackoff(RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS), RETRY_DEADLINE_MILLIS,
+		new RetryClassifier());
+
+	private static final int MAX_BATCH_SIZE = 50;
+	private static final String RESULT_CODE_MIGRATED = "200";
+	private static final int HTTP_NOT_FOUND = 404;
+	private static final int HTTP_BAD_METHOD = 405;
+	private static final int HTTP_NOT_IMPLEMENTED = 501;
+	private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+	// batch urls that turned out not to be supported by the service, so they are not tried again in this process.
+	private static final Set<String> unsupportedBatchUrls =
+		Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private static OkHttpClient sharedHttpClient;
 
 	private final MigrationEventsNotifier eventsNotifier;
 	private final MigrationNetworkInfo migrationNetworkInfo;
-	private OkHttpClient okHttpClient;
+	private final OkHttpClient okHttpClient;
+	private final MigrationHandle handle;
 
 
-	AccountMigrator(MigrationEventsNotifier eventsNotifier, MigrationNetworkInfo migrationNetworkInfo) {
+	/**
+	 * @param handle the migration this migrator works for, its requests are cancelled once it is stopped.
+	 */
+	AccountMigrator(MigrationEventsNotifier eventsNotifier, MigrationNetworkInfo migrationNetworkInfo,
+		OkHttpClient okHttpClient, @Nullable MigrationHandle handle) {
 		this.eventsNotifier = eventsNotifier;
 		this.migrationNetworkInfo = migrationNetworkInfo;
-		createHttpClient();
+		this.okHttpClient = okHttpClient;
+		this.handle = handle;
+	}
+
+	/**
+	 * Create the client for the migration service requests.
+	 *
+	 * @param baseClient a client that was supplied by the app, its connection pool and dispatcher will be shared. If
+	 * null then the process wide client is returned.
+	 */
+	static OkHttpClient createHttpClient(@Nullable OkHttpClient baseClient) {
+		if (baseClient != null) {
+			return configureHttpClient(baseClient.newBuilder()).build();
+		}
+		return getSharedHttpClient();
+	}
+
+	private static synchronized OkHttpClient getSharedHttpClient() {
+		if (sharedHttpClient == null) {
+			// keep connections to the migration service alive between migrations and multiplex them when possible.
+			sharedHttpClient = configureHttpClient(new OkHttpClient.Builder())
+				.connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_MINUTES, TimeUnit.MINUTES))
+				.build();
+		}
+		return sharedHttpClient;
+	}
+
+	private static OkHttpClient.Builder configureHttpClient(OkHttpClient.Builder builder) {
+		return builder
+			.connectTimeout(TIMEOUT, TimeUnit.SECONDS)
+			.readTimeout(TIMEOUT, TimeUnit.SECONDS)
+			.addInterceptor(new RetryInterceptor(RETRY_POLICY));
 	}
 
 	void migrateToNewKin(final String publicAddress) throws Exception {
+		MigrationMetrics metrics = MigrationMetrics.getInstance();
+		long startNanos = metrics.begin(MigrationMetrics.Stage.MIGRATION_REQUEST);
+		boolean success = false;
+		try {
+			sendMigrationRequest(publicAddress);
+			success = true;
+		} finally {
+			metrics.end(MigrationMetrics.Stage.MIGRATION_REQUEST, startNanos, success);
+		}
+	}
+
+	private void sendMigrationRequest(String publicAddress) throws Exception {
 		eventsNotifier.onRequestAccountMigrationStarted(publicAddress);
 		try {
-			Response response = sendRequest(migrationNetworkInfo.getMigrationServiceUrl() + publicAddress);
-			if (response.isSuccessful()) {
-				eventsNotifier
-					.onRequestAccountMigrationSucceeded(publicAddress, RequestAccountMigrationSuccessReason.MIGRATED);
-				eventsNotifier
-					.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.MIGRATED);
-			} else {
-				handleMigrationException(response, publicAddress);
+			Response response = sendRequest(migrationNetworkInfo.getMigrationServiceUrl() + publicAddress,
+				RequestBody.create(null, ""));
+			try {
+				if (response.isSuccessful()) {
+					eventsNotifier
+						.onRequestAccountMigrationSucceeded(publicAddress, RequestAccountMigrationSuccessReason.MIGRATED);
+					eventsNotifier
+						.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.MIGRATED);
+				} else {
+					handleMigrationException(response, publicAddress);
+				}
+			} finally {
+				response.close();
 			}
 		} catch (IOException e) {
 			eventsNotifier.onRequestAccountMigrationFailed(publicAddress, e);
 			throw e;
 		}
-	}// Handle the migration exceptions, if an exception that is not solvable then throw it, else just handle it.
+	}
+
+	/**
+	 * Migrate several accounts, with as few requests as possible.
+	 * <p>If the migration service has a batch url then the accounts are sent in batches, otherwise, or if the service
+	 * doesn't support it, every account is migrated with its own request.</p>
+	 *
+	 * @return the failure of every account that couldn't be migrated, the rest are ready on the new kin blockchain.
+	 */
+	@NonNull
+	Map<String, Exception> migrateToNewKin(final List<String> publicAddresses) {
+		Map<String, Exception> failures = new HashMap<>();
+		String batchUrl = migrationNetworkInfo.getMigrationServiceBatchUrl();
+		List<String> singleAddresses = publicAddresses;
+		if (batchUrl != null && publicAddresses.size() > 1 && !unsupportedBatchUrls.contains(batchUrl)) {
+			singleAddresses = new ArrayList<>();
+			for (int i = 0; i < publicAddresses.size(); i += MAX_BATCH_SIZE) {
+				List<String> batch = publicAddresses.subList(i, Math.min(publicAddresses.size(), i + MAX_BATCH_SIZE));
+				singleAddresses.addAll(migrateBatch(batchUrl, batch, failures));
+			}
+		}
+		for (String publicAddress : singleAddresses) {
+			try {
+				migrateToNewKin(publicAddress);
+			} catch (Exception e) {
+				failures.put(publicAddress, e);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return the addresses that the batch request didn't handle and should be migrated with a single request.
+	 */
+	private List<String> migrateBatch(String batchUrl, List<String> publicAddresses,
+		Map<String, Exception> failures) {
+		MigrationMetrics metrics = MigrationMetrics.getInstance();
+		long startNanos = metrics.begin(MigrationMetrics.Stage.MIGRATION_REQUEST);
+		int failuresBefore = failures.size();
+		try {
+			return sendBatchMigrationRequest(batchUrl, publicAddresses, failures);
+		} finally {
+			metrics.end(MigrationMetrics.Stage.MIGRATION_REQUEST, startNanos, failures.size() == failuresBefore);
+		}
+	}
+
+	private List<String> sendBatchMigrationRequest(String batchUrl, List<String> publicAddresses,
+		Map<String, Exception> failures) {
+		// the started event of an address is sent only once the batch handled it, the addresses that fall back to a
+		// single request get it from that request.
+		Map<String, MigrationServiceParser.Result> results;
+		try {
+			Response response = sendRequest(batchUrl, RequestBody.create(JSON, toBatchRequestBody(publicAddresses)));
+			try {
+				int code = response.code();
+				if (code == HTTP_NOT_FOUND || code == HTTP_BAD_METHOD || code == HTTP_NOT_IMPLEMENTED) {
+					if (Logger.isLoggable(Logger.Level.DEBUG)) {
+						Logger.d("migration service doesn't support batch requests, code = {}", code);
+					}
+					unsupportedBatchUrls.add(batchUrl);
+					return publicAddresses;
+				}
+				ResponseBody body = response.body();
+				if (!response.isSuccessful() || body == null) {
+					MigrationFailedException exception = new MigrationFailedException(
+						"Batch migration request failed, response code is = " + code);
+					onBatchFailed(publicAddresses, exception, failures);
+					return Collections.emptyList();
+				}
+				results = MigrationServiceParser.parseBatchResults(body);
+			} finally {
+				response.close();
+			}
+		} catch (IOException e) {
+			onBatchFailed(publicAddresses, e, failures);
+			return Collections.emptyList();
+		}
+		List<String> unhandledAddresses = new ArrayList<>();
+		for (String publicAddress : publicAddresses) {
+			MigrationServiceParser.Result result = results.get(publicAddress);
+			if (result == null) {
+				unhandledAddresses.add(publicAddress);
+				continue;
+			}
+			eventsNotifier.onRequestAccountMigrationStarted(publicAddress);
+			if (RESULT_CODE_MIGRATED.equals(result.code)) {
+				eventsNotifier
+					.onRequestAccountMigrationSucceeded(publicAddress, RequestAccountMigrationSuccessReason.MIGRATED);
+				eventsNotifier.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.MIGRATED);
+			} else {
+				MigrationFailedException exception = handleResultCode(publicAddress, result.code, result.message);
+				if (exception != null) {
+					eventsNotifier.onRequestAccountMigrationFailed(publicAddress, exception);
+					failures.put(publicAddress, exception);
+				}
+			}
+		}
+		return unhandledAddresses;
+	}
+
+	private void onBatchFailed(List<String> publicAddresses, Exception exception, Map<String, Exception> failures) {
+		for (String publicAddress : publicAddresses) {
+			eventsNotifier.onRequestAccountMigrationStarted(publicAddress);
+			eventsNotifier.onRequestAccountMigrationFailed(publicAddress, exception);
+			failures.put(publicAddress, exception);
+		}
+	}
+
+	private static String toBatchRequestBody(List<String> publicAddresses) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		JsonWriter writer = new JsonWriter(stringWriter);
+		writer.beginObject().name("addresses").beginArray();
+		for (String publicAddress : publicAddresses) {
+			writer.value(publicAddress);
+		}
+		writer.endArray().endObject();
+		writer.close();
+		return stringWriter.toString();
+	}
 
 	void handleMigrationException(Response response, String publicAddress) throws MigrationFailedException {
 		// check if account has been migrated successfully and if yes then complete the process and update the persistent state.
-		boolean handled = false;
-		MigrationFailedException exception = new MigrationFailedException(
-			"Migration not completed due to an unexpected exception");
+		MigrationFailedException exception;
 		ResponseBody body = response.body();
 		if (body != null) {
 			try {
-				Type type = new TypeToken<Map<String, String>>() {
-				}.getType();
-				Map<String, String> error = new Gson().fromJson(body.string(), type);
-				final String code = error.get("code");
-				String message = error.get("message");
-				if (code != null) {
-					switch (code) {
-						case "4001":  // account not burned
-							exception = new MigrationFailedException(message + ", code = " + code);
-							break;
-						case "4002":  // account was already migrated
-							eventsNotifier.onRequestAccountMigrationSucceeded(publicAddress,
-								RequestAccountMigrationSuccessReason.ALREADY_MIGRATED);
-							eventsNotifier
-								.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.ALREADY_MIGRATED);
-							handled = true;
-							break;
-						case "4003":  // public address is not valid, meaning the format of it is not valid.
-							exception = new MigrationFailedException(message + ", code = " + code);
-							break;
-						case "4041":  // account was not found
-							eventsNotifier.onRequestAccountMigrationSucceeded(publicAddress,
-								RequestAccountMigrationSuccessReason.ACCOUNT_NOT_FOUND);
-							eventsNotifier
-								.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.NO_ACCOUNT_TO_MIGRATE);
-							handled = true;
-							break;
-						default:
-							exception = new MigrationFailedException(
-								"Got an unexpected migration exception with message: " + message + ", and code: "
-									+ code);
-							break;
-					}
-				}
+				MigrationServiceParser.Result error = MigrationServiceParser.parseError(body);
+				exception = handleResultCode(publicAddress, error.code, error.message);
 			} catch (IOException e) {
 				exception = new MigrationFailedException("Json parsing failed", e);
 			}
 		} else {
 			exception = new MigrationFailedException("Body is null, response code is = " + response.code());
 		}
-		if (!handled) {
+		if (exception != null) {
 			eventsNotifier.onRequestAccountMigrationFailed(publicAddress, exception);
 			throw (exception);
 		}
 	}
 
-	private void createHttpClient() {
-		RetryInterceptor retryInterceptor = new RetryInterceptor();
-		okHttpClient = new OkHttpClient.Builder()
-			.connectTimeout(TIMEOUT, TimeUnit.SECONDS)
-			.readTimeout(TIMEOUT, TimeUnit.SECONDS)
-			.addInterceptor(retryInterceptor)
-			.build();
+	/**
+	 * Map a result code of the migration service.
+	 *
+	 * @return null if the code means that the account is ready on the new kin blockchain, otherwise the failure.
+	 */
+	@Nullable
+	private MigrationFailedException handleResultCode(String publicAddress, @Nullable String code,
+		@Nullable String message) {
+		if (code == null) {
+			return new MigrationFailedException("Migration not completed due to an unexpected exception");
+		}
+		switch (code) {
+			case "4001":  // account not burned
+				return new MigrationFailedException(message + ", code = " + code);
+			case "4002":  // account was already migrated
+				eventsNotifier.onRequestAccountMigrationSucceeded(publicAddress,
+					RequestAccountMigrationSuccessReason.ALREADY_MIGRATED);
+				eventsNotifier
+					.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.ALREADY_MIGRATED);
+				return null;
+			case "4003":  // public address is not valid, meaning the format of it is not valid.
+				return new MigrationFailedException(message + ", code = " + code);
+			case "4041":  // account was not found
+				eventsNotifier.onRequestAccountMigrationSucceeded(publicAddress,
+					RequestAccountMigrationSuccessReason.ACCOUNT_NOT_FOUND);
+				eventsNotifier
+					.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.NO_ACCOUNT_TO_MIGRATE);
+				return null;
+			default:
+				return new MigrationFailedException(
+					"Got an unexpected migration exception with message: " + message + ", and code: " + code);
+		}
 	}
 
-	private Response sendRequest(String url) throws IOException {
+	private Response sendRequest(String url, RequestBody requestBody) throws IOException {
 		Request request = new Request.Builder()
 			.url(url)
-			.post(RequestBody.create(null, ""))
+			.post(requestBody)
+			.tag(new RetryInterceptor.Tag(eventsNotifier, handle))
 			.build();
-		return okHttpClient.newCall(request).execute();
-	}
-
-	private static class RetryInterceptor implements Interceptor {
-
-		private int retryCounter = 1;
-
-		@Override
-		public Response intercept(@NonNull Chain chain) throws IOException {
-			Logger.d("RetryInterceptor, intercept: ");
-			Request request = chain.request();
-			Response response = chain.proceed(request);
-			if (response.code() >= 500) {
-				response = retryRequest(request, chain);
-			}
-			retryCounter = 1;
-			Logger.d("RetryInterceptor, intercepted: " + response.toString());
-			return response;
-		}
-
-		private Response retryRequest(Request req, Chain chain) throws IOException {
-			Logger.d("RetryInterceptor, retrying new request");
-			Request newRequest = req.newBuilder().build();
-			Response another = chain.proceed(newRequest);
-			while (retryCounter < MAX_RETRIES && another.code() >= 500) {
-				retryCounter++;
-				another = retryRequest(newRequest, chain); // recursive call
-			}
-			return another;
+		Call call = okHttpClient.newCall(request);
+		if (handle == null) {
+			return call.execute();
+		}
+		handle.addInFlightCall(call);
+		try {
+			return call.execute();
+		} finally {
+			handle.removeInFlightCall(call);
 		}
 	}
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,444 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import kin.sdk.Logger;
+import kin.sdk.migration.bi.IMigrationEventsListener;
+import kin.sdk.migration.common.KinSdkVersion;
+
+/**
+ * Delivers the BI events to an {@link IMigrationEventsListener} on a dedicated thread, so a slow listener doesn't slow
+ * down the migration.
+ * <p>The events are put on a bounded lock free ring buffer and a single consumer thread delivers them to the listener
+ * in the order they were posted. What happens when the listener falls behind and the buffer is full is decided by
+ * the {@link OverflowPolicy}.</p>
+ * <p>Created with {@link MigrationManager#enableAsyncEventsDispatch(int, OverflowPolicy)}.</p>
+ */
+public final class AsyncEventsDispatcher implements IMigrationEventsListener {
+
+	public enum OverflowPolicy {
+		/**
+		 * Drop the oldest event in the buffer to make room for the new one.
+		 */
+		DROP_OLDEST,
+		/**
+		 * Block the thread that posts the event until there is room in the buffer. Events are never lost, but a slow
+		 * listener slows down the migration again once the buffer is full.
+		 */
+		BLOCK,
+		/**
+		 * While the buffer is full keep only the latest event of every account, and the latest event that doesn't
+		 * belong to an account. The kept events are delivered after the ones in the buffer, in the order they were
+		 * posted.
+		 */
+		COALESCE
+	}
+
+	private static final String THREAD_NAME = "kin-migration-events";
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final String NO_ACCOUNT_KEY = "";
+
+	private static final int METHOD_STARTED = 0;
+	private static final int VERSION_CHECK_STARTED = 1;
+	private static final int VERSION_CHECK_SUCCEEDED = 2;
+	private static final int VERSION_CHECK_FAILED = 3;
+	private static final int CALLBACK_START = 4;
+	private static final int CHECK_BURN_STARTED = 5;
+	private static final int CHECK_BURN_SUCCEEDED = 6;
+	private static final int CHECK_BURN_FAILED = 7;
+	private static final int BURN_STARTED = 8;
+	private static final int BURN_SUCCEEDED = 9;
+	private static final int BURN_FAILED = 10;
+	private static final int REQUEST_MIGRATION_STARTED = 11;
+	private static final int REQUEST_MIGRATION_SUCCEEDED = 12;
+	private static final int REQUEST_MIGRATION_FAILED = 13;
+	private static final int CALLBACK_READY = 14;
+	private static final int CALLBACK_FAILED = 15;
+
+	private final IMigrationEventsListener listener;
+	private final OverflowPolicy overflowPolicy;
+	private final int mask;
+	private final AtomicReferenceArray<Event> slots;
+	// the sequence of every slot, as in the bounded MPMC queue of Dmitry Vyukov.
+	private final AtomicLongArray sequences;
+	private final AtomicLong enqueuePosition;
+	private final AtomicLong dequeuePosition;
+	// guarded by itself, in the order the kept events were posted.
+	private final LinkedHashMap<String, Event> coalescedEvents;
+	private volatile int coalescedSize;
+	private final AtomicLong droppedCount;
+	private final AtomicLong coalescedCount;
+	private final Thread consumerThread;
+	private volatile boolean isConsumerParked;
+	private volatile boolean isShutdown;
+
+	/**
+	 * @param listener the listener that will receive the events on the dispatcher thread.
+	 * @param capacity the number of events the buffer can hold, rounded up to a power of 2.
+	 * @param overflowPolicy what to do with new events when the buffer is full.
+	 */
+	AsyncEventsDispatcher(@NonNull IMigrationEventsListener listener, int capacity,
+		@NonNull OverflowPolicy overflowPolicy) {
+		if (capacity < 1 || capacity > 1 << 20) {
+			throw new IllegalArgumentException("capacity must be between 1 and " + (1 << 20));
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.listener = listener;
+		this.overflowPolicy = overflowPolicy;
+		mask = size - 1;
+		slots = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		enqueuePosition = new AtomicLong();
+		dequeuePosition = new AtomicLong();
+		coalescedEvents = new LinkedHashMap<>();
+		droppedCount = new AtomicLong();
+		coalescedCount = new AtomicLong();
+		consumerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, THREAD_NAME);
+		consumerThread.setDaemon(true);
+		consumerThread.start();
+	}
+
+	/**
+	 * @return the number of events that were lost because the buffer was full, or because they were posted after
+	 * {@link #shutdown()}.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of events that were replaced by a later event of the same account, see
+	 * {@link OverflowPolicy#COALESCE}.
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the approximate number of events that were posted but not delivered yet.
+	 */
+	public int getPendingCount() {
+		long pending = enqueuePosition.get() - dequeuePosition.get();
+		return (int) Math.max(0, pending) + coalescedSize;
+	}
+
+	/**
+	 * Stop the dispatcher thread once the events that were already posted are delivered. Events that are posted
+	 * afterwards are dropped.
+	 */
+	public void shutdown() {
+		isShutdown = true;
+		LockSupport.unpark(consumerThread);
+	}
+
+	@Override
+	public void onMethodStarted() {
+		post(new Event(METHOD_STARTED, null, null));
+	}
+
+	@Override
+	public void onVersionCheckStarted() {
+		post(new Event(VERSION_CHECK_STARTED, null, null));
+	}
+
+	@Override
+	public void onVersionCheckSucceeded(KinSdkVersion sdkVersion) {
+		post(new Event(VERSION_CHECK_SUCCEEDED, null, sdkVersion));
+	}
+
+	@Override
+	public void onVersionCheckFailed(Exception exception) {
+		post(new Event(VERSION_CHECK_FAILED, null, exception));
+	}
+
+	@Override
+	public void onCallbackStart() {
+		post(new Event(CALLBACK_START, null, null));
+	}
+
+	@Override
+	public void onCheckBurnStarted(String publicAddress) {
+		post(new Event(CHECK_BURN_STARTED, publicAddress, null));
+	}
+
+	@Override
+	public void onCheckBurnSucceeded(String publicAddress, CheckBurnReason reason) {
+		post(new Event(CHECK_BURN_SUCCEEDED, publicAddress, reason));
+	}
+
+	@Override
+	public void onCheckBurnFailed(String publicAddress, Exception exception) {
+		post(new Event(CHECK_BURN_FAILED, publicAddress, exception));
+	}
+
+	@Override
+	public void onBurnStarted(String publicAddress) {
+		post(new Event(BURN_STARTED, publicAddress, null));
+	}
+
+	@Override
+	public void onBurnSucceeded(String publicAddress, BurnReason reason) {
+		post(new Event(BURN_SUCCEEDED, publicAddress, reason));
+	}
+
+	@Override
+	public void onBurnFailed(String publicAddress, Exception exception) {
+		post(new Event(BURN_FAILED, publicAddress, exception));
+	}
+
+	@Override
+	public void onRequestAccountMigrationStarted(String publicAddress) {
+		post(new Event(REQUEST_MIGRATION_STARTED, publicAddress, null));
+	}
+
+	@Override
+	public void onRequestAccountMigrationSucceeded(String publicAddress, RequestAccountMigrationSuccessReason reason) {
+		post(new Event(REQUEST_MIGRATION_SUCCEEDED, publicAddress, reason));
+	}
+
+	@Override
+	public void onRequestAccountMigrationFailed(String publicAddress, Exception exception) {
+		post(new Event(REQUEST_MIGRATION_FAILED, publicAddress, exception));
+	}
+
+	@Override
+	public void onCallbackReady(KinSdkVersion sdkVersion, SelectedSdkReason selectedSdkReason) {
+		post(new Event(CALLBACK_READY, null, sdkVersion, selectedSdkReason));
+	}
+
+	@Override
+	public void onCallbackFailed(Exception exception) {
+		post(new Event(CALLBACK_FAILED, null, exception));
+	}
+
+	private void post(Event event) {
+		if (isShutdown) {
+			droppedCount.incrementAndGet();
+			return;
+		}
+		switch (overflowPolicy) {
+			case DROP_OLDEST:
+				while (!offer(event)) {
+					if (poll() != null) {
+						droppedCount.incrementAndGet();
+					}
+				}
+				break;
+			case BLOCK:
+				while (!offer(event)) {
+					if (isShutdown) {
+						droppedCount.incrementAndGet();
+						return;
+					}
+					LockSupport.parkNanos(BLOCK_PARK_NANOS);
+				}
+				break;
+			case COALESCE:
+				// once events were coalesced the new ones must wait behind them, to keep the order of every account.
+				if (coalescedSize > 0 || !offer(event)) {
+					coalesce(event);
+				}
+				break;
+		}
+		if (isConsumerParked) {
+			LockSupport.unpark(consumerThread);
+		}
+	}
+
+	private boolean offer(Event event) {
+		long position = enqueuePosition.get();
+		while (true) {
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (enqueuePosition.compareAndSet(position, position + 1)) {
+					slots.lazySet(index, event);
+					// a volatile write, so the consumer can't miss it between its last check and parking.
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = enqueuePosition.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = enqueuePosition.get();
+			}
+		}
+	}
+
+	private Event poll() {
+		long position = dequeuePosition.get();
+		while (true) {
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (dequeuePosition.compareAndSet(position, position + 1)) {
+					Event event = slots.get(index);
+					slots.lazySet(index, null);
+					sequences.lazySet(index, position + mask + 1);
+					return event;
+				}
+				position = dequeuePosition.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = dequeuePosition.get();
+			}
+		}
+	}
+
+	private void coalesce(Event event) {
+		synchronized (coalescedEvents) {
+			// removed first so the replacing event takes its place in the posting order.
+			if (coalescedEvents.remove(event.key()) != null) {
+				coalescedCount.incrementAndGet();
+			}
+			coalescedEvents.put(event.key(), event);
+			coalescedSize = coalescedEvents.size();
+		}
+	}
+
+	private Event pollCoalesced() {
+		if (coalescedSize == 0) {
+			return null;
+		}
+		synchronized (coalescedEvents) {
+			Iterator<Event> iterator = coalescedEvents.values().iterator();
+			if (!iterator.hasNext()) {
+				return null;
+			}
+			Event event = iterator.next();
+			iterator.remove();
+			coalescedSize = coalescedEvents.size();
+			return event;
+		}
+	}
+
+	private void consume() {
+		while (true) {
+			Event event = poll();
+			if (event == null) {
+				event = pollCoalesced();
+			}
+			if (event != null) {
+				deliver(event);
+				continue;
+			}
+			if (isShutdown) {
+				return;
+			}
+			isConsumerParked = true;
+			if (isEmpty() && !isShutdown) {
+				LockSupport.park(this);
+			}
+			isConsumerParked = false;
+		}
+	}
+
+	private boolean isEmpty() {
+		long position = dequeuePosition.get();
+		return sequences.get((int) (position & mask)) != position + 1 && coalescedSize == 0;
+	}
+
+	private void deliver(Event event) {
+		try {
+			event.dispatch(listener);
+		} catch (RuntimeException e) {
+			Logger.e("migration events listener failed", e);
+		}
+	}
+
+	private static class Event {
+
+		private final int type;
+		private final String publicAddress;
+		private final Object value;
+		private final Object reason;
+
+		Event(int type, String publicAddress, Object value) {
+			this(type, publicAddress, value, null);
+		}
+
+		Event(int type, String publicAddress, Object value, Object reason) {
+			this.type = type;
+			this.publicAddress = publicAddress;
+			this.value = value;
+			this.reason = reason;
+		}
+
+		String key() {
+			return publicAddress != null ? publicAddress : NO_ACCOUNT_KEY;
+		}
+
+		void dispatch(IMigrationEventsListener listener) {
+			switch (type) {
+				case METHOD_STARTED:
+					listener.onMethodStarted();
+					break;
+				case VERSION_CHECK_STARTED:
+					listener.onVersionCheckStarted();
+					break;
+				case VERSION_CHECK_SUCCEEDED:
+					listener.onVersionCheckSucceeded((KinSdkVersion) value);
+					break;
+				case VERSION_CHECK_FAILED:
+					listener.onVersionCheckFailed((Exception) value);
+					break;
+				case CALLBACK_START:
+					listener.onCallbackStart();
+					break;
+				case CHECK_BURN_STARTED:
+					listener.onCheckBurnStarted(publicAddress);
+					break;
+				case CHECK_BURN_SUCCEEDED:
+					listener.onCheckBurnSucceeded(publicAddress, (CheckBurnReason) value);
+					break;
+				case CHECK_BURN_FAILED:
+					listener.onCheckBurnFailed(publicAddress, (Exception) value);
+					break;
+				case BURN_STARTED:
+					listener.onBurnStarted(publicAddress);
+					break;
+				case BURN_SUCCEEDED:
+					listener.onBurnSucceeded(publicAddress, (BurnReason) value);
+					break;
+				case BURN_FAILED:
+					listener.onBurnFailed(publicAddress, (Exception) value);
+					break;
+				case REQUEST_MIGRATION_STARTED:
+					listener.onRequestAccountMigrationStarted(publicAddress);
+					break;
+				case REQUEST_MIGRATION_SUCCEEDED:
+					listener.onRequestAccountMigrationSucceeded(publicAddress,
+						(RequestAccountMigrationSuccessReason) value);
+					break;
+				case REQUEST_MIGRATION_FAILED:
+					listener.onRequestAccountMigrationFailed(publicAddress, (Exception) value);
+					break;
+				case CALLBACK_READY:
+					listener.onCallbackReady((KinSdkVersion) value, (SelectedSdkReason) reason);
+					break;
+				case CALLBACK_FAILED:
+					listener.onCallbackFailed((Exception) value);
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package kin.sdk.migration;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import kin.sdk.Logger;
+import kin.sdk.migration.common.KinSdkVersion;
+import kin.sdk.migration.common.exception.FailedToResolveSdkVersionException;
+import kin.sdk.migration.common.interfaces.IKinVersionProvider;
+
+/**
+ * An {@link IKinVersionProvider} that caches the answer of another provider, so repeated migrations (and app
+ * launches) don't each wait for the version round trip.
+ * <ul>
+ * <li>An {@link KinSdkVersion#OLD_KIN_SDK} answer is fresh for the ttl. After that, and until the stale period passes
+ * too, it's still returned right away while a single background request revalidates it. Once both passed the next
+ * call waits for the provider.</li>
+ * <li>A {@link KinSdkVersion#NEW_KIN_SDK} answer never expires, the switch to the new sdk is never turned back.</li>
+ * <li>If the provider fails, the last answer is returned no matter how old it is, and the failure is thrown only when
+ * there is no answer at all.</li>
+ * </ul>
+ * <p>When created with a {@link Context} the answer is persisted, so it survives process restarts.</p>
+ */
+public class CachingKinVersionProvider implements IKinVersionProvider {
+
+	private static final String PREFERENCE_FILE_KEY = "KinMigrationVersionCache";
+	private static final String VERSION_KEY = "version";
+	private static final String TIMESTAMP_KEY = "timestamp";
+
+	private final IKinVersionProvider kinVersionProvider;
+	private final long ttlMillis;
+	private final long staleMillis;
+	private final Executor executor;
+	@Nullable
+	private final Context context;
+	private final AtomicBoolean isRevalidating;
+	private final Object lock;
+	private volatile boolean loaded;
+	private volatile KinSdkVersion cachedVersion;
+	private volatile long cachedTimestamp;
+
+	/**
+	 * Create a cache that is kept in memory only.
+	 *
+	 * @param kinVersionProvider the provider that resolves the version.
+	 * @param ttlMillis how long an {@link KinSdkVersion#OLD_KIN_SDK} answer is used without asking the provider.
+	 * @param staleMillis how long after the ttl an {@link KinSdkVersion#OLD_KIN_SDK} answer is still returned while it
+	 * is revalidated in the background.
+	 */
+	public CachingKinVersionProvider(@NonNull IKinVersionProvider kinVersionProvider, long ttlMillis,
+		long staleMillis) {
+		this(null, kinVersionProvider, ttlMillis, staleMillis, MigrationExecutor.getDefault());
+	}
+
+	/**
+	 * Create a cache that is persisted in the app shared preferences, so it survives process restarts.
+	 *
+	 * @see #CachingKinVersionProvider(IKinVersionProvider, long, long)
+	 */
+	public CachingKinVersionProvider(@NonNull Context context, @NonNull IKinVersionProvider kinVersionProvider,
+		long ttlMillis, long staleMillis) {
+		this(context.getApplicationContext(), kinVersionProvider, ttlMillis, staleMillis,
+			MigrationExecutor.getDefault());
+	}
+
+	CachingKinVersionProvider(@Nullable Context context, @NonNull IKinVersionProvider kinVersionProvider,
+		long ttlMillis, long staleMillis, @NonNull Executor executor) {
+		if (ttlMillis < 0 || staleMillis < 0) {
+			throw new IllegalArgumentException("ttlMillis and staleMillis must not be negative");
+		}
+		this.context = context;
+		this.kinVersionProvider = kinVersionProvider;
+		this.ttlMillis = ttlMillis;
+		this.staleMillis = staleMillis;
+		this.executor = executor;
+		this.isRevalidating = new AtomicBoolean();
+		this.lock = new Object();
+	}
+
+	@Override
+	public KinSdkVersion getKinSdkVersion() throws FailedToResolveSdkVersionException {
+		ensureLoaded();
+		KinSdkVersion version = cachedVersion;
+		if (version == KinSdkVersion.NEW_KIN_SDK) {
+			return version;
+		}
+		if (version != null) {
+			long age = System.currentTimeMillis() - cachedTimestamp;
+			// a negative age means the clock was moved back, the answer can't be trusted to be fresh.
+			if (age >= 0 && age < ttlMillis) {
+				return version;
+			}
+			if (age >= 0 && age - ttlMillis < staleMillis) {
+				revalidateInBackground();
+				return version;
+			}
+		}
+		return fetch();
+	}
+
+	/**
+	 * Forget the cached answer, from memory and from the persistent storage.
+	 */
+	public void clear() {
+		synchronized (lock) {
+			cachedVersion = null;
+			cachedTimestamp = 0;
+			loaded = true;
+			if (context != null) {
+				getPreferences().edit().clear().apply();
+			}
+		}
+	}
+
+	private KinSdkVersion fetch() throws FailedToResolveSdkVersionException {
+		KinSdkVersion version;
+		try {
+			version = kinVersionProvider.getKinSdkVersion();
+		} catch (FailedToResolveSdkVersionException e) {
+			KinSdkVersion lastVersion = cachedVersion;
+			if (lastVersion != null) {
+				Logger.e("failed to resolve the sdk version, using the cached version {}", lastVersion.getVersion(),
+					e);
+				return lastVersion;
+			}
+			throw e;
+		}
+		if (version == null) {
+			// the manager treats a null answer as a failure, so the last answer is used the same way.
+			KinSdkVersion lastVersion = cachedVersion;
+			if (lastVersion != null) {
+				Logger.w("the sdk version provider returned null, using the cached version {}",
+					lastVersion.getVersion());
+			}
+			return lastVersion;
+		}
+		put(version);
+		return version;
+	}
+
+	private void revalidateInBackground() {
+		if (!isRevalidating.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						fetch();
+					} catch (FailedToResolveSdkVersionException | RuntimeException e) {
+						Logger.e("failed to revalidate the sdk version", e);
+					} finally {
+						isRevalidating.set(false);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			isRevalidating.set(false);
+		}
+	}
+
+	private void put(KinSdkVersion version) {
+		synchronized (lock) {
+			// never go back from the new sdk, even if a revalidation that started earlier answers the old one.
+			if (cachedVersion == KinSdkVersion.NEW_KIN_SDK && version != KinSdkVersion.NEW_KIN_SDK) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			cachedVersion = version;
+			cachedTimestamp = now;
+			if (context != null) {
+				getPreferences().edit()
+					.putString(VERSION_KEY, version.getVersion())
+					.putLong(TIMESTAMP_KEY, now)
+					.apply();
+			}
+		}
+	}
+
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		synchronized (lock) {
+			if (loaded) {
+				return;
+			}
+			if (context != null) {
+				SharedPreferences preferences = getPreferences();
+				KinSdkVersion version = KinSdkVersion.get(preferences.getString(VERSION_KEY, null));
+				if (version != null) {
+					cachedVersion = version;
+					cachedTimestamp = preferences.getLong(TIMESTAMP_KEY, 0);
+				}
+			}
+			loaded = true;
+		}
+	}
+
+	private SharedPreferences getPreferences() {
+		return context.getSharedPreferences(PREFERENCE_FILE_KEY, Context.MODE_PRIVATE);
+	}
+}
@@ -0,0 +1,54 @@
+package kin.sdk.migration;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import java.util.concurrent.Executor;
+
+/**
+ * Executors for {@link MigrationManager#setCallbackExecutor(Executor)}.
+ */
+public final class CallbackExecutors {
+
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(@NonNull Runnable command) {
+			command.run();
+		}
+	};
+
+	private static volatile Executor mainThread;
+
+	private CallbackExecutors() {
+	}
+
+	/**
+	 * @return an executor that posts the callbacks to the main thread looper, the default.
+	 */
+	@NonNull
+	public static Executor mainThread() {
+		if (mainThread == null) {
+			synchronized (CallbackExecutors.class) {
+				if (mainThread == null) {
+					final Handler handler = new Handler(Looper.getMainLooper());
+					mainThread = new Executor() {
+						@Override
+						public void execute(@NonNull Runnable command) {
+							handler.post(command);
+						}
+					};
+				}
+			}
+		}
+		return mainThread;
+	}
+
+	/**
+	 * @return an executor that calls the callbacks on the thread that completed the migration, the callbacks must not
+	 * block it.
+	 */
+	@NonNull
+	public static Executor direct() {
+		return DIRECT;
+	}
+}
@@ -0,0 +1,53 @@
+package kin.sdk.migration;
+
+/**
+ * Stops sending requests to a target after a number of consecutive failures. Once the open period is over a single
+ * trial request is allowed, its success closes the circuit and its failure opens it again.
+ */
+final class CircuitBreaker {
+
+	private enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openDurationNanos;
+	private State state;
+	private int consecutiveFailures;
+	private long openedAtNanos;
+
+	CircuitBreaker(int failureThreshold, long openDurationMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openDurationNanos = openDurationMillis * 1000000L;
+		this.state = State.CLOSED;
+	}
+
+	synchronized boolean allowRequest() {
+		switch (state) {
+			case OPEN:
+				if (System.nanoTime() - openedAtNanos >= openDurationNanos) {
+					state = State.HALF_OPEN;
+					return true;
+				}
+				return false;
+			case HALF_OPEN:
+				// only the trial request is allowed until it completes.
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	synchronized void onSuccess() {
+		consecutiveFailures = 0;
+		state = State.CLOSED;
+	}
+
+	synchronized void onFailure() {
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAtNanos = System.nanoTime();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package kin.sdk.migration;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with "full jitter", the delay before retry number n is a random value between zero and
+ * min(maxDelay, baseDelay * 2^n). The randomness spreads the retries of many clients over time instead of having all of
+ * them hitting the server at the same moment.
+ */
+final class ExponentialBackoff {
+
+	private static final int MAX_SHIFT = 30;
+
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+	private final Random random;
+
+	ExponentialBackoff(long baseDelayMillis, long maxDelayMillis) {
+		this(baseDelayMillis, maxDelayMillis, new Random());
+	}
+
+	ExponentialBackoff(long baseDelayMillis, long maxDelayMillis, Random random) {
+		if (baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis) {
+			throw new IllegalArgumentException("invalid backoff delays");
+		}
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.random = random;
+	}
+
+	/**
+	 * @param attempt the zero based number of the retry.
+	 * @return the delay in milliseconds before that retry.
+	 */
+	long delayMillis(int attempt) {
+		return (long) (random.nextDouble() * upperBoundMillis(attempt));
+	}
+
+	long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	private long upperBoundMillis(int attempt) {
+		int shift = Math.min(Math.max(attempt, 0), MAX_SHIFT);
+		long bound = baseDelayMillis << shift;
+		return bound > 0 && bound < maxDelayMillis ? bound : maxDelayMillis;
+	}
+}
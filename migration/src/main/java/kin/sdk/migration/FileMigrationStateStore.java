@@ -0,0 +1,254 @@
+package kin.sdk.migration;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import kin.sdk.Logger;
+
+/**
+ * A {@link MigrationStateStore} which keeps the states in a compact append only binary log.
+ * <p>Every save appends a single small record to the end of the file, the file is never rewritten on save. When the
+ * log is loaded the latest record of every address wins, and if most of the records are stale the log is compacted
+ * to one record per address. A record that was only partially written (for example when the process died in the
+ * middle of a write) is detected by its checksum and dropped.</p>
+ * <p>When created with a {@link Context}, the states that older versions of this module kept in the shared
+ * preferences are imported the first time the log is created.</p>
+ */
+public class FileMigrationStateStore implements MigrationStateStore {
+
+	static final String LEGACY_PREFERENCE_FILE_KEY = "KinMigrationModule";
+	static final String LEGACY_MIGRATION_COMPLETED_KEY = "migration_completed_key_";
+	private static final String FILE_NAME = "kin_migration_state.log";
+	private static final int MAGIC = 0x4B4D5331; // "KMS1"
+	private static final int HEADER_LENGTH = 4;
+	private static final int MAX_RECORD_LENGTH = 4096;
+	private static final int MIN_RECORDS_TO_COMPACT = 64;
+	private static final int FLAG_BURNED = 1;
+	private static final int FLAG_MIGRATED = 1 << 1;
+
+	private final File file;
+	@Nullable
+	private final Context legacyContext;
+	private int recordCount;
+
+	/**
+	 * Create a store in the app private files directory, importing the state of older versions of this module.
+	 */
+	public FileMigrationStateStore(@NonNull Context context) {
+		this(new File(context.getFilesDir(), FILE_NAME), context.getApplicationContext());
+	}
+
+	/**
+	 * @param file the log file, created on the first save if it does not exist.
+	 */
+	public FileMigrationStateStore(@NonNull File file) {
+		this(file, null);
+	}
+
+	private FileMigrationStateStore(File file, @Nullable Context legacyContext) {
+		this.file = file;
+		this.legacyContext = legacyContext;
+	}
+
+	@NonNull
+	@Override
+	public synchronized Map<String, MigrationState> loadAll() throws IOException {
+		Map<String, MigrationState> states = new HashMap<>();
+		if (file.exists() && hasUnknownFormat()) {
+			// appending to it would never make it readable, keep it aside and start a new log.
+			moveAside();
+		}
+		if (!file.exists()) {
+			recordCount = 0;
+			if (legacyContext != null && importLegacyStates(states)) {
+				rewrite(states);
+				clearLegacyStates();
+			}
+			return states;
+		}
+		boolean isComplete = readLog(states);
+		if (!isComplete || (recordCount >= MIN_RECORDS_TO_COMPACT && recordCount > 2 * states.size())) {
+			if (Logger.isLoggable(Logger.Level.DEBUG)) {
+				Logger.d("compacting the migration state log, records = {}, states = {}", recordCount, states.size());
+			}
+			rewrite(states);
+		}
+		return states;
+	}
+
+	@Override
+	public synchronized void save(@NonNull MigrationState state) throws IOException {
+		// a header that was only partially written can't have records after it, it is truncated and written again.
+		boolean isNew = !file.exists() || file.length() < HEADER_LENGTH;
+		FileOutputStream outputStream = new FileOutputStream(file, !isNew);
+		try {
+			DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+			if (isNew) {
+				dataOutputStream.writeInt(MAGIC);
+			}
+			writeRecord(dataOutputStream, state);
+			dataOutputStream.flush();
+			outputStream.getFD().sync();
+			recordCount++;
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	@Override
+	public synchronized void clear() throws IOException {
+		recordCount = 0;
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Failed to delete " + file);
+		}
+	}
+
+	private boolean hasUnknownFormat() throws IOException {
+		if (file.length() < HEADER_LENGTH) {
+			// a partially written header, handled like a partially written record.
+			return false;
+		}
+		DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+		try {
+			return inputStream.readInt() != MAGIC;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private void moveAside() throws IOException {
+		File asideFile = new File(file.getPath() + ".unknown");
+		Logger.w("unknown migration state log format, moving it to {}", asideFile.getName());
+		if ((asideFile.exists() && !asideFile.delete()) || !file.renameTo(asideFile)) {
+			throw new IOException("Failed to move aside " + file);
+		}
+	}
+
+	/**
+	 * @return false if the log ended with a broken record and should be rewritten.
+	 */
+	private boolean readLog(Map<String, MigrationState> states) throws IOException {
+		recordCount = 0;
+		DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (inputStream.readInt() != MAGIC) {
+				throw new IOException("Unknown migration state log format");
+			}
+			CRC32 crc = new CRC32();
+			while (true) {
+				int length;
+				try {
+					length = inputStream.readInt();
+				} catch (EOFException e) {
+					return true;
+				}
+				if (length <= 0 || length > MAX_RECORD_LENGTH) {
+					return false;
+				}
+				byte[] payload = new byte[length];
+				inputStream.readFully(payload);
+				crc.reset();
+				crc.update(payload, 0, length);
+				if (inputStream.readInt() != (int) crc.getValue()) {
+					return false;
+				}
+				MigrationState state = readPayload(payload);
+				states.put(state.getPublicAddress(), state);
+				recordCount++;
+			}
+		} catch (EOFException e) {
+			// the last record was only partially written.
+			return false;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private void rewrite(Map<String, MigrationState> states) throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp");
+		FileOutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+			dataOutputStream.writeInt(MAGIC);
+			for (MigrationState state : states.values()) {
+				writeRecord(dataOutputStream, state);
+			}
+			dataOutputStream.flush();
+			outputStream.getFD().sync();
+		} finally {
+			outputStream.close();
+		}
+		if (!tempFile.renameTo(file)) {
+			throw new IOException("Failed to replace " + file);
+		}
+		recordCount = states.size();
+	}
+
+	private static void writeRecord(DataOutputStream outputStream, MigrationState state) throws IOException {
+		ByteArrayOutputStream payloadStream = new ByteArrayOutputStream(128);
+		DataOutputStream payload = new DataOutputStream(payloadStream);
+		int flags = (state.isBurned() ? FLAG_BURNED : 0) | (state.isMigrated() ? FLAG_MIGRATED : 0);
+		payload.writeByte(flags);
+		payload.writeUTF(state.getPublicAddress());
+		String burnTransactionId = state.getBurnTransactionId();
+		payload.writeUTF(burnTransactionId != null ? burnTransactionId : "");
+		payload.writeLong(state.getTimestamp());
+		byte[] bytes = payloadStream.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		outputStream.writeInt(bytes.length);
+		outputStream.write(bytes);
+		outputStream.writeInt((int) crc.getValue());
+	}
+
+	private static MigrationState readPayload(byte[] payload) throws IOException {
+		DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(payload));
+		int flags = inputStream.readUnsignedByte();
+		String publicAddress = inputStream.readUTF();
+		String burnTransactionId = inputStream.readUTF();
+		long timestamp = inputStream.readLong();
+		return new MigrationState(publicAddress, (flags & FLAG_BURNED) != 0, (flags & FLAG_MIGRATED) != 0,
+			burnTransactionId.isEmpty() ? null : burnTransactionId, timestamp);
+	}
+
+	private boolean importLegacyStates(Map<String, MigrationState> states) {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, ?> entry : getLegacyPreferences().getAll().entrySet()) {
+			String key = entry.getKey();
+			if (key.startsWith(LEGACY_MIGRATION_COMPLETED_KEY) && Boolean.TRUE.equals(entry.getValue())) {
+				String publicAddress = key.substring(LEGACY_MIGRATION_COMPLETED_KEY.length());
+				states.put(publicAddress, new MigrationState(publicAddress, true, true, null, now));
+			}
+		}
+		return !states.isEmpty();
+	}
+
+	private void clearLegacyStates() {
+		SharedPreferences preferences = getLegacyPreferences();
+		SharedPreferences.Editor editor = preferences.edit();
+		for (String key : preferences.getAll().keySet()) {
+			if (key.startsWith(LEGACY_MIGRATION_COMPLETED_KEY)) {
+				editor.remove(key);
+			}
+		}
+		editor.apply();
+	}
+
+	private SharedPreferences getLegacyPreferences() {
+		return legacyContext.getSharedPreferences(LEGACY_PREFERENCE_FILE_KEY, Context.MODE_PRIVATE);
+	}
+}
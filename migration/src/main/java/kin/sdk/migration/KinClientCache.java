@@ -0,0 +1,104 @@
+package kin.sdk.migration;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import kin.sdk.Logger;
+import kin.sdk.migration.common.interfaces.IKinClient;
+import kin.sdk.migration.internal.OnAccountsChangedListener;
+
+/**
+ * Process wide cache of the kin clients, so every {@link MigrationManager} with the same configuration shares the
+ * same client instead of loading the key store and creating the network stack again.
+ * <p>The old and the new kin clients of the same store key read the same key store but each of them loads the
+ * accounts only once, when it is created. So after the accounts were changed through one client every other cached
+ * client of that store key is dropped and will be created again the next time it is needed.</p>
+ */
+final class KinClientCache {
+
+	interface Factory<T extends IKinClient> {
+
+		T create(OnAccountsChangedListener onAccountsChangedListener);
+	}
+
+	private static final Map<String, Entry> clients = new HashMap<>();
+	// increased whenever the accounts of any client are changed, guarded by clients.
+	private static long accountsGeneration;
+	private static final OnAccountsChangedListener invalidator = new OnAccountsChangedListener() {
+		@Override
+		public void onAccountsChanged(IKinClient kinClient) {
+			invalidateOthers(kinClient);
+		}
+	};
+
+	private KinClientCache() {
+	}
+
+	/**
+	 * @param clientKey identifies the client, must include everything the client is created from.
+	 * @param storeKey the store key of the client, clients with the same store key share the same accounts.
+	 * @param factory creates the client if there is no cached one, must register the given listener.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends IKinClient> T get(String clientKey, String storeKey, Factory<T> factory) {
+		while (true) {
+			long generation;
+			synchronized (clients) {
+				Entry entry = clients.get(clientKey);
+				if (entry != null) {
+					return (T) entry.client;
+				}
+				generation = accountsGeneration;
+			}
+			// creating the client loads the key store from the disk, so it is done without holding the lock that the
+			// managers of every other configuration need too.
+			T client = factory.create(invalidator);
+			synchronized (clients) {
+				Entry entry = clients.get(clientKey);
+				if (entry != null) {
+					return (T) entry.client;
+				}
+				// if the accounts were changed meanwhile the client may have loaded them before the change.
+				if (generation == accountsGeneration) {
+					clients.put(clientKey, new Entry(storeKey, client));
+					return client;
+				}
+			}
+		}
+	}
+
+	private static void invalidateOthers(IKinClient changedClient) {
+		synchronized (clients) {
+			accountsGeneration++;
+			String storeKey = null;
+			for (Entry entry : clients.values()) {
+				if (entry.client == changedClient) {
+					storeKey = entry.storeKey;
+					break;
+				}
+			}
+			if (storeKey == null) {
+				return;
+			}
+			Iterator<Entry> iterator = clients.values().iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+				if (entry.client != changedClient && entry.storeKey.equals(storeKey)) {
+					Logger.d("accounts were changed, dropping a cached kin client");
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private static class Entry {
+
+		final String storeKey;
+		final IKinClient client;
+
+		Entry(String storeKey, IKinClient client) {
+			this.storeKey = storeKey;
+			this.client = client;
+		}
+	}
+}
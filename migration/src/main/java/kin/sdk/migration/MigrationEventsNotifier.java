@@ -4,14 +4,46 @@ import kin.sdk.Logger;
 import kin.sdk.migration.bi.IMigrationEventsListener;
 import kin.sdk.migration.common.KinSdkVersion;
 
-class MigrationEventsNotifier implements IMigrationEventsListener {
+class MigrationEventsNotifier implements IMigrationEventsListener, RetryPolicy.RetryListener {
 
-    private final IMigrationEventsListener listener;
+    private final IMigrationEventsListener eventsListener;
+    // either the events listener itself or an async dispatcher that delivers to it.
+    private volatile IMigrationEventsListener listener;
 
     MigrationEventsNotifier(IMigrationEventsListener listener) {
+        this.eventsListener = listener;
         this.listener = listener;
     }
 
+    /**
+     * Deliver the events to the listener on a dispatcher thread instead of on the calling thread.
+     *
+     * @return the new dispatcher, a previous one is shut down once its pending events are delivered.
+     */
+    synchronized AsyncEventsDispatcher enableAsyncDispatch(int capacity,
+        AsyncEventsDispatcher.OverflowPolicy overflowPolicy) {
+        AsyncEventsDispatcher dispatcher = new AsyncEventsDispatcher(eventsListener, capacity, overflowPolicy);
+        replaceListener(dispatcher);
+        return dispatcher;
+    }
+
+    /**
+     * Go back to delivering the events on the calling thread. The switch is immediate, the pending events of the
+     * dispatcher are still delivered on its thread, so events that are posted after the switch can reach the listener
+     * before them.
+     */
+    synchronized void disableAsyncDispatch() {
+        replaceListener(eventsListener);
+    }
+
+    private void replaceListener(IMigrationEventsListener newListener) {
+        IMigrationEventsListener previous = listener;
+        listener = newListener;
+        if (previous instanceof AsyncEventsDispatcher) {
+            ((AsyncEventsDispatcher) previous).shutdown();
+        }
+    }
+
     @Override
     public void onMethodStarted() {
         Logger.d("onMethodStarted");
@@ -26,7 +58,7 @@ class MigrationEventsNotifier implements IMigrationEventsListener {
 
     @Override
     public void onVersionCheckSucceeded(KinSdkVersion sdkVersion) {
-        Logger.d("onVersionCheckSucceeded sdkVersion = " + sdkVersion.getVersion());
+        Logger.d("onVersionCheckSucceeded sdkVersion = {}", sdkVersion.getVersion());
         listener.onVersionCheckSucceeded(sdkVersion);
     }
 
@@ -44,61 +76,61 @@ class MigrationEventsNotifier implements IMigrationEventsListener {
 
     @Override
     public void onCheckBurnStarted(String publicAddress) {
-        Logger.d("onCheckBurnStarted publicAddress = " + publicAddress);
+        Logger.d("onCheckBurnStarted publicAddress = {}", publicAddress);
         listener.onCheckBurnStarted(publicAddress);
     }
 
     @Override
     public void onCheckBurnSucceeded(String publicAddress, CheckBurnReason reason) {
-        Logger.d("onCheckBurnSucceeded publicAddress = " + publicAddress + " reason = " + reason.value());
+        Logger.d("onCheckBurnSucceeded publicAddress = {} reason = {}", publicAddress, reason.value());
         listener.onCheckBurnSucceeded(publicAddress, reason);
     }
 
     @Override
     public void onCheckBurnFailed(String publicAddress, Exception exception) {
-        Logger.e("onCheckBurnFailed publicAddress = " + publicAddress, exception);
+        Logger.e("onCheckBurnFailed publicAddress = {}", publicAddress, exception);
         listener.onCheckBurnFailed(publicAddress, exception);
     }
 
     @Override
     public void onBurnStarted(String publicAddress) {
-        Logger.d("onBurnStarted publicAddress = " + publicAddress);
+        Logger.d("onBurnStarted publicAddress = {}", publicAddress);
         listener.onBurnStarted(publicAddress);
     }
 
     @Override
     public void onBurnSucceeded(String publicAddress, BurnReason reason) {
-        Logger.d("onBurnSucceeded publicAddress = " + publicAddress + " reason = " + reason.value());
+        Logger.d("onBurnSucceeded publicAddress = {} reason = {}", publicAddress, reason.value());
         listener.onBurnSucceeded(publicAddress, reason);
     }
 
     @Override
     public void onBurnFailed(String publicAddress, Exception exception) {
-        Logger.e("onBurnFailed publicAddress = " + publicAddress, exception);
+        Logger.e("onBurnFailed publicAddress = {}", publicAddress, exception);
         listener.onBurnFailed(publicAddress, exception);
     }
 
     @Override
     public void onRequestAccountMigrationStarted(String publicAddress) {
-        Logger.d("onRequestAccountMigrationStarted publicAddress = " + publicAddress);
+        Logger.d("onRequestAccountMigrationStarted publicAddress = {}", publicAddress);
         listener.onRequestAccountMigrationStarted(publicAddress);
     }
 
     @Override
     public void onRequestAccountMigrationSucceeded(String publicAddress, RequestAccountMigrationSuccessReason reason) {
-        Logger.d("onRequestAccountMigrationSucceeded publicAddress = " + publicAddress + " reason = " + reason.value());
+        Logger.d("onRequestAccountMigrationSucceeded publicAddress = {} reason = {}", publicAddress, reason.value());
         listener.onRequestAccountMigrationSucceeded(publicAddress, reason);
     }
 
     @Override
     public void onRequestAccountMigrationFailed(String publicAddress, Exception exception) {
-        Logger.e("onRequestAccountMigrationFailed publicAddress = " + publicAddress, exception);
+        Logger.e("onRequestAccountMigrationFailed publicAddress = {}", publicAddress, exception);
         listener.onRequestAccountMigrationFailed(publicAddress, exception);
     }
 
     @Override
     public void onCallbackReady(KinSdkVersion sdkVersion, SelectedSdkReason selectedSdkReason) {
-        Logger.d("onCallbackReady sdkVersion = " + sdkVersion.getVersion() + " reason = " + selectedSdkReason.value());
+        Logger.d("onCallbackReady sdkVersion = {} reason = {}", sdkVersion.getVersion(), selectedSdkReason.value());
         listener.onCallbackReady(sdkVersion, selectedSdkReason);
     }
 
@@ -107,4 +139,28 @@ class MigrationEventsNotifier implements IMigrationEventsListener {
         Logger.e("onCallbackFailed", exception);
         listener.onCallbackFailed(exception);
     }
+
+    @Override
+    public void onRetry(String operation, int retryNumber, long delayMillis, String reason) {
+        MigrationMetrics.Stage stage = stageOf(operation);
+        if (stage != null) {
+            MigrationMetrics.getInstance().recordRetry(stage);
+        }
+        if (Logger.isLoggable(Logger.Level.DEBUG)) {
+            Logger.d("{}: retry in {}ms, reason = {}", operation, delayMillis, reason);
+        }
+    }
+
+    private static MigrationMetrics.Stage stageOf(String operation) {
+        switch (operation) {
+            case AccountBurner.CHECK_BURN_OPERATION:
+                return MigrationMetrics.Stage.BURN_CHECK;
+            case AccountBurner.BURN_OPERATION:
+                return MigrationMetrics.Stage.BURN_TRANSACTION;
+            case RetryInterceptor.MIGRATION_REQUEST_OPERATION:
+                return MigrationMetrics.Stage.MIGRATION_REQUEST;
+            default:
+                return null;
+        }
+    }
 }
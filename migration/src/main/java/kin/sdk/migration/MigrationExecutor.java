@@ -0,0 +1,131 @@
+package kin.sdk.migration;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded, named thread pool for the migration work.
+ * <p>By default every {@link MigrationManager} in the process shares the same instance (see {@link #getDefault()}),
+ * so threads are reused between migrations and the number of concurrent migration threads is capped no matter how
+ * many managers are created.</p>
+ */
+public final class MigrationExecutor implements Executor {
+
+	private static final String THREAD_NAME_PREFIX = "kin-migration-";
+	private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+	private static final int DEFAULT_MAX_THREADS = Math.max(2, Math.min(CPU_COUNT, 4));
+	private static final long KEEP_ALIVE_SECONDS = 30;
+
+	private static volatile MigrationExecutor defaultExecutor;
+
+	private final ThreadPoolExecutor threadPoolExecutor;
+	private final AtomicInteger maxQueueDepth;
+
+	/**
+	 * @return the process wide executor which is used by default by all the {@link MigrationManager} instances.
+	 */
+	@NonNull
+	public static MigrationExecutor getDefault() {
+		if (defaultExecutor == null) {
+			synchronized (MigrationExecutor.class) {
+				if (defaultExecutor == null) {
+					defaultExecutor = new MigrationExecutor(DEFAULT_MAX_THREADS);
+				}
+			}
+		}
+		return defaultExecutor;
+	}
+
+	/**
+	 * @param maxThreads the maximum number of threads that will run migration tasks at the same time, tasks beyond
+	 * that are queued. Idle threads are released after a short keep alive period.
+	 */
+	public MigrationExecutor(int maxThreads) {
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("maxThreads must be at least 1");
+		}
+		threadPoolExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new MigrationThreadFactory());
+		threadPoolExecutor.allowCoreThreadTimeOut(true);
+		maxQueueDepth = new AtomicInteger();
+	}
+
+	@Override
+	public void execute(@NonNull Runnable command) {
+		threadPoolExecutor.execute(command);
+		updateMaxQueueDepth(threadPoolExecutor.getQueue().size());
+	}
+
+	/**
+	 * @return the number of tasks that are waiting for a free thread.
+	 */
+	public int getQueueDepth() {
+		return threadPoolExecutor.getQueue().size();
+	}
+
+	/**
+	 * @return the highest queue depth that was observed since this executor was created.
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * @return the approximate number of threads that are currently running tasks.
+	 */
+	public int getActiveCount() {
+		return threadPoolExecutor.getActiveCount();
+	}
+
+	/**
+	 * @return the current number of threads in the pool, idle ones included.
+	 */
+	public int getPoolSize() {
+		return threadPoolExecutor.getPoolSize();
+	}
+
+	/**
+	 * @return the maximum number of threads this executor is allowed to use.
+	 */
+	public int getMaxPoolSize() {
+		return threadPoolExecutor.getMaximumPoolSize();
+	}
+
+	/**
+	 * @return the approximate number of tasks that have completed execution.
+	 */
+	public long getCompletedTaskCount() {
+		return threadPoolExecutor.getCompletedTaskCount();
+	}
+
+	private void updateMaxQueueDepth(int depth) {
+		int max = maxQueueDepth.get();
+		while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+			max = maxQueueDepth.get();
+		}
+	}
+
+	private static class MigrationThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(@NonNull final Runnable runnable) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
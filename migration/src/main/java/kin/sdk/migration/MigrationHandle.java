@@ -0,0 +1,269 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import kin.sdk.migration.common.exception.MigrationCancelledException;
+import okhttp3.Call;
+
+/**
+ * A handle to a migration process that was started by {@link MigrationManager}, can be used to cancel it.
+ * <p>When the migration is cancelled, or when its deadline passes, the retries stop, the network request in flight is
+ * cancelled and the callback gets {@link MigrationCancelledException} right away. The manager accepts a new migration
+ * only once the stopped one noticed the stop and exited, so two migrations never work on the same account.</p>
+ */
+public final class MigrationHandle {
+
+	static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private static ScheduledExecutorService deadlineScheduler;
+
+	interface StopListener {
+
+		void onStopped(MigrationHandle handle, MigrationCancelledException exception);
+
+		/**
+		 * Called once all the workers of the migration have exited, from that point on the migration doesn't touch the
+		 * accounts anymore. A stopped migration gets here only after its workers noticed the stop, which can take a
+		 * while if one of them is blocked in a call that ignores interrupts.
+		 */
+		void onWorkersExited(MigrationHandle handle);
+	}
+
+	private static final int WORKER_NEW = 0;
+	private static final int WORKER_RUNNING = 1;
+	private static final int WORKER_EXITED = 2;
+
+	private final long deadlineNanos;
+	private final long startNanos;
+	private final StopListener stopListener;
+	private final AtomicBoolean done;
+	private volatile boolean cancelled;
+	private final Set<Future<?>> workers;
+	private final Set<Call> inFlightCalls;
+	private volatile Future<?> deadlineTimer;
+	private int runningWorkers;
+	private boolean workersExited;
+	private Runnable afterWorkersExited;
+
+	/**
+	 * @param timeoutMillis the overall time the migration is allowed to take, or {@link #NO_DEADLINE}.
+	 * @param stopListener is notified once if the migration is stopped before it is done.
+	 */
+	MigrationHandle(long timeoutMillis, @NonNull StopListener stopListener) {
+		this.deadlineNanos = timeoutMillis == NO_DEADLINE ? NO_DEADLINE
+			: System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		this.stopListener = stopListener;
+		this.startNanos = MigrationMetrics.getInstance().begin(MigrationMetrics.Stage.TIME_TO_READY);
+		this.done = new AtomicBoolean();
+		this.workers = Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+		this.inFlightCalls = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+		if (timeoutMillis != NO_DEADLINE) {
+			deadlineTimer = getDeadlineScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					stop(new MigrationCancelledException("Migration deadline exceeded", true));
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Cancel the migration, the callback will get {@link MigrationCancelledException} unless the migration is already
+	 * done.
+	 *
+	 * @return true if the migration was cancelled by this call, false if it was already done or stopped.
+	 */
+	public boolean cancel() {
+		return stop(new MigrationCancelledException("Migration was cancelled", false));
+	}
+
+	/**
+	 * @return true if the migration was cancelled or its deadline has passed.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return true if the migration process has ended, whether it was completed, failed or cancelled.
+	 */
+	public boolean isDone() {
+		return done.get();
+	}
+
+	/**
+	 * @return true if the work on this migration should stop.
+	 */
+	boolean shouldStop() {
+		return cancelled || (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos > 0);
+	}
+
+	/**
+	 * @return the time left until the deadline, {@link #NO_DEADLINE} if there is none.
+	 */
+	long remainingMillis() {
+		if (deadlineNanos == NO_DEADLINE) {
+			return NO_DEADLINE;
+		}
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+	}
+
+	void throwIfStopped() throws MigrationCancelledException {
+		if (shouldStop()) {
+			throw new MigrationCancelledException(cancelled ? "Migration was cancelled" : "Migration deadline exceeded",
+				!cancelled);
+		}
+	}
+
+	/**
+	 * Create a task that works on this migration. It is interrupted when the migration is stopped, and it counts as
+	 * running until its body returns, or until it is cancelled before it started.
+	 * <p>A worker that is never executed must be cancelled, otherwise the migration never exits.</p>
+	 */
+	FutureTask<Void> newWorker(Runnable body) {
+		return newWorker(Executors.<Void>callable(body, null));
+	}
+
+	/**
+	 * Same as {@link #newWorker(Runnable)}, for a worker that produces a result.
+	 */
+	<T> FutureTask<T> newWorker(final Callable<T> body) {
+		final AtomicInteger state = new AtomicInteger(WORKER_NEW);
+		synchronized (this) {
+			runningWorkers++;
+		}
+		FutureTask<T> worker = new FutureTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				if (!state.compareAndSet(WORKER_NEW, WORKER_RUNNING)) {
+					return null;
+				}
+				try {
+					return body.call();
+				} finally {
+					state.set(WORKER_EXITED);
+					onWorkerExited();
+				}
+			}
+		}) {
+			@Override
+			protected void done() {
+				// cancelled before the body started, it will never start.
+				if (state.compareAndSet(WORKER_NEW, WORKER_EXITED)) {
+					onWorkerExited();
+				}
+			}
+		};
+		addWorker(worker);
+		return worker;
+	}
+
+	/**
+	 * Run the action once all the workers have exited, right after {@link StopListener#onWorkersExited}.
+	 */
+	void runAfterWorkersExited(@NonNull Runnable action) {
+		synchronized (this) {
+			if (!workersExited) {
+				afterWorkersExited = action;
+				return;
+			}
+		}
+		action.run();
+	}
+
+	private void onWorkerExited() {
+		Runnable action;
+		synchronized (this) {
+			if (--runningWorkers > 0) {
+				return;
+			}
+			workersExited = true;
+			action = afterWorkersExited;
+			afterWorkersExited = null;
+		}
+		stopListener.onWorkersExited(this);
+		if (action != null) {
+			action.run();
+		}
+	}
+
+	private void addWorker(Future<?> worker) {
+		workers.add(worker);
+		if (cancelled) {
+			worker.cancel(true);
+		}
+	}
+
+	/**
+	 * Register a network call that is executed for this migration, so it can be cancelled.
+	 */
+	void addInFlightCall(@NonNull Call call) {
+		inFlightCalls.add(call);
+		if (cancelled) {
+			call.cancel();
+		}
+	}
+
+	void removeInFlightCall(@NonNull Call call) {
+		inFlightCalls.remove(call);
+	}
+
+	/**
+	 * Mark the migration as done, only the first caller, either the migration itself or a cancellation, succeeds.
+	 *
+	 * @param success true if the migration is ready, false if it failed or was stopped.
+	 * @return true if the migration was marked as done by this call.
+	 */
+	boolean markDone(boolean success) {
+		if (done.compareAndSet(false, true)) {
+			MigrationMetrics.getInstance().end(MigrationMetrics.Stage.TIME_TO_READY, startNanos, success);
+			Future<?> timer = deadlineTimer;
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private boolean stop(MigrationCancelledException exception) {
+		if (!markDone(false)) {
+			return false;
+		}
+		cancelled = true;
+		for (Call call : inFlightCalls) {
+			call.cancel();
+		}
+		for (Future<?> worker : workers) {
+			worker.cancel(true);
+		}
+		stopListener.onStopped(this, exception);
+		return true;
+	}
+
+	private static synchronized ScheduledExecutorService getDeadlineScheduler() {
+		if (deadlineScheduler == null) {
+			deadlineScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(@NonNull Runnable runnable) {
+					Thread thread = new Thread(runnable, "kin-migration-deadline");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return deadlineScheduler;
+	}
+}
@@ -1,37 +1,58 @@
 package kin.sdk.migration;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import kin.core.ServiceProvider;
 import kin.sdk.Environment;
+import kin.sdk.LogSink;
 import kin.sdk.Logger;
 import kin.sdk.migration.bi.IMigrationEventsListener;
 import kin.sdk.migration.bi.IMigrationEventsListener.BurnReason;
+import kin.sdk.migration.bi.IMigrationEventsListener.CheckBurnReason;
 import kin.sdk.migration.bi.IMigrationEventsListener.SelectedSdkReason;
+import kin.sdk.migration.common.BatchMigrationResult;
 import kin.sdk.migration.common.KinSdkVersion;
 import kin.sdk.migration.common.exception.AccountNotFoundLocallyException;
 import kin.sdk.migration.common.exception.FailedToResolveSdkVersionException;
+import kin.sdk.migration.common.exception.MigrationCancelledException;
 import kin.sdk.migration.common.exception.MigrationFailedException;
 import kin.sdk.migration.common.exception.MigrationInProcessException;
+import kin.sdk.migration.common.interfaces.IBatchMigrationCallbacks;
 import kin.sdk.migration.common.interfaces.IKinAccount;
 import kin.sdk.migration.common.interfaces.IKinClient;
 import kin.sdk.migration.common.interfaces.IKinVersionProvider;
 import kin.sdk.migration.common.interfaces.IMigrationManagerCallbacks;
+import kin.sdk.migration.internal.OnAccountsChangedListener;
 import kin.sdk.migration.internal.core_related.KinAccountCoreImpl;
 import kin.sdk.migration.internal.core_related.KinClientCoreImpl;
 import kin.sdk.migration.internal.sdk_related.KinClientSdkImpl;
+import okhttp3.OkHttpClient;
 
 public class MigrationManager {
 
 	private static final String TAG = MigrationManager.class.getSimpleName();
-	static final String KIN_MIGRATION_MODULE_PREFERENCE_FILE_KEY = "KinMigrationModule";
-	static final String KIN_MIGRATION_COMPLETED_KEY = "migration_completed_key_";
+	private static final int DEFAULT_MAX_CONCURRENT_MIGRATIONS = 3;
 
 	private final Context context;
 	private final String appId;
@@ -41,6 +62,12 @@ public class MigrationManager {
 	private final MigrationEventsNotifier eventsNotifier;
 	private final AtomicBoolean isMigrationInProcess; // defence against multiple calls
 	private final Handler handler;
+	private volatile Executor callbackExecutor;
+	private final OkHttpClient migrationHttpClient;
+	private volatile MigrationStateCache migrationStateCache;
+	private Executor executor;
+	private volatile boolean speculativeBurnCheckEnabled;
+	private volatile int maxConcurrentMigrations = DEFAULT_MAX_CONCURRENT_MIGRATIONS;
 
 	public MigrationManager(@NonNull Context applicationContext, @NonNull String appId,
 		@NonNull MigrationNetworkInfo migrationNetworkInfo,
@@ -61,19 +88,126 @@ public class MigrationManager {
 		this.storeKey = storeKey;
 		isMigrationInProcess = new AtomicBoolean();
 		handler = new Handler(Looper.getMainLooper());
+		callbackExecutor = CallbackExecutors.mainThread();
+		executor = MigrationExecutor.getDefault();
+		migrationHttpClient = AccountMigrator.createHttpClient(migrationNetworkInfo.getOkHttpClient());
+		migrationStateCache = MigrationStateCache.getInstance(MigrationStateCache.getDefaultStore(context));
+		migrationStateCache.warmUp(executor);
 	}
 
 	public void enableLogs(boolean enable) {
 		Logger.enable(enable);
 	}
 
+	/**
+	 * @param level the lowest level that is logged when logs are enabled, default is {@link Logger.Level#DEBUG}.
+	 */
+	public void setLogLevel(@NonNull Logger.Level level) {
+		Logger.setLevel(level);
+	}
+
+	/**
+	 * Set where the logs are written, by default to logcat. Wrap sinks that do I/O with an
+	 * {@link kin.sdk.AsyncLogSink} so the migration threads don't wait for the writes.
+	 */
+	public void setLogSink(@NonNull LogSink logSink) {
+		Logger.setSink(logSink);
+	}
+
+	/**
+	 * Set the executor on which the migration process will run.
+	 * <p>By default all the instances of this class share the same bounded pool, see
+	 * {@link MigrationExecutor#getDefault()}.</p>
+	 *
+	 * @param executor the executor that will run the migration process, must not run the tasks on the UI thread.
+	 */
+	public void setExecutor(@NonNull Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the executor on which the {@link IMigrationManagerCallbacks} and {@link IBatchMigrationCallbacks} are called.
+	 * <p>By default the callbacks are called on the main thread. Apps without UI, like background services, can use a
+	 * different executor, or {@link CallbackExecutors#direct()} to call them on the migration thread. The migration
+	 * state is always saved before the callback is dispatched, so the callback executor never touches the disk.</p>
+	 *
+	 * @param callbackExecutor the executor that will call the callbacks.
+	 */
+	public void setCallbackExecutor(@NonNull Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * Set the store in which the migration state of the accounts is persisted.
+	 * <p>By default the state is kept in a {@link FileMigrationStateStore} in the app private files directory. Managers
+	 * that use the same store instance share the same in memory state.</p>
+	 *
+	 * @param migrationStateStore the store that will be used by this manager.
+	 */
+	public void setMigrationStateStore(@NonNull MigrationStateStore migrationStateStore) {
+		MigrationStateCache migrationStateCache = MigrationStateCache.getInstance(migrationStateStore);
+		migrationStateCache.warmUp(executor);
+		this.migrationStateCache = migrationStateCache;
+	}
+
+	/**
+	 * Enable or disable the speculative burn check.
+	 * <p>When enabled, the check whether the account is already burned(and the local account lookup) starts at the
+	 * same time as the version check instead of after it. If the version check resolves to the new kin sdk then the
+	 * result is used, otherwise it is discarded. This shortens the time until the callback is ready at the price of an
+	 * extra request to the Kin2 blockchain when the migration is not needed yet.</p>
+	 * <p>Disabled by default.</p>
+	 */
+	public void enableSpeculativeBurnCheck(boolean enable) {
+		this.speculativeBurnCheckEnabled = enable;
+	}
+
+	/**
+	 * Set how many accounts a batch migration(see {@link #startAll(IBatchMigrationCallbacks)}) burns and migrates at
+	 * the same time.
+	 * <p>The accounts are migrated on the migration executor, so the actual parallelism is also limited by it. Default
+	 * is 3.</p>
+	 *
+	 * @param maxConcurrentMigrations the maximum number of accounts that are migrated at the same time, at least 1.
+	 */
+	public void setMaxConcurrentMigrations(int maxConcurrentMigrations) {
+		if (maxConcurrentMigrations < 1) {
+			throw new IllegalArgumentException("maxConcurrentMigrations must be at least 1");
+		}
+		this.maxConcurrentMigrations = maxConcurrentMigrations;
+	}
+
+	/**
+	 * Deliver the BI events to the {@link IMigrationEventsListener} on a dedicated thread instead of on the migration
+	 * threads, so a slow listener doesn't add to the migration time.
+	 * <p>Disabled by default, in which case the listener is called on the thread that runs the migration.</p>
+	 *
+	 * @param capacity the number of events that can wait for the listener, rounded up to a power of 2.
+	 * @param overflowPolicy what to do with new events when the listener falls behind and the buffer is full.
+	 * @return the dispatcher, use it to read the dropped events counters.
+	 */
+	@NonNull
+	public AsyncEventsDispatcher enableAsyncEventsDispatch(int capacity,
+		@NonNull AsyncEventsDispatcher.OverflowPolicy overflowPolicy) {
+		return eventsNotifier.enableAsyncDispatch(capacity, overflowPolicy);
+	}
+
+	/**
+	 * Go back to calling the {@link IMigrationEventsListener} on the migration threads. The switch doesn't wait for the
+	 * dispatcher to drain, events that were already posted to it are still delivered on its thread, possibly after
+	 * events that are posted once the switch is done.
+	 */
+	public void disableAsyncEventsDispatch() {
+		eventsNotifier.disableAsyncDispatch();
+	}
+
 	/**
 	 * @param sdkVersion is the sdk version on which the KinClient should run. The sdk version should be the same as in
 	 * your servers.
 	 * @return the kin client.
 	 */
 	public IKinClient getKinClient(KinSdkVersion sdkVersion) {
-		Logger.d("getCurrentKinClient - sdkVersion = " + sdkVersion.getVersion());
+		Logger.d("getCurrentKinClient - sdkVersion = {}", sdkVersion.getVersion());
 		return sdkVersion == KinSdkVersion.NEW_KIN_SDK ? initNewKin() : initKinCore();
 	}
 
@@ -90,23 +224,26 @@ public class MigrationManager {
 
 	/**
 	 * Starting the migration process from Kin2(Core library) to the new Kin(Sdk library - One Blockchain).
-	 * <p><b>Note:</b> This method internally uses a background thread and it is also access the network.</p>
+	 * <p><b>Note:</b> This method internally runs on the migration executor(see {@link #setExecutor(Executor)}) and it
+	 * is also access the network.</p>
 	 * <p><b>Note:</b> If all the migration process will be completed then this method minimum time is 6 seconds.</p>
 	 * <p><b>Note:</b> This method should be called only once, if required more then create another instance of this
 	 * class.</p>
 	 *
 	 * @param migrationManagerCallbacks is a listener so the caller can get a callback for completion or error(on the UI
 	 * 0thread).
+	 * @return a handle which can be used to cancel the migration.
 	 * @throws MigrationInProcessException is thrown in case this method is called while it is not finished.
 	 */
-	public void start(final IMigrationManagerCallbacks migrationManagerCallbacks)
+	public MigrationHandle start(final IMigrationManagerCallbacks migrationManagerCallbacks)
 		throws MigrationInProcessException {
-		start(null, migrationManagerCallbacks);
+		return start(null, migrationManagerCallbacks);
 	}
 
 	/**
 	 * Starting the migration process from Kin2(Core library) to the new Kin(Sdk library - One Blockchain).
-	 * <p><b>Note:</b> This method internally uses a background thread and it is also access the network.</p>
+	 * <p><b>Note:</b> This method internally runs on the migration executor(see {@link #setExecutor(Executor)}) and it
+	 * is also access the network.</p>
 	 * <p><b>Note:</b> If all the migration process will be completed then this method minimum time is 6 seconds.</p>
 	 * <p><b>Note:</b> This method should be called only once, if required more then create another instance of this
 	 * class.</p>
@@ -118,64 +255,402 @@ public class MigrationManager {
 	 * @param migrationManagerCallbacks is a listener so the caller can get a callback for completion or error(on the UI
 	 * thread).
 	 *
+	 * @return a handle which can be used to cancel the migration.
 	 *
 	 * @throws MigrationInProcessException is thrown in case this method is called while it is not finished.
 	 */
-	public void start(@Nullable final String publicAddress, final IMigrationManagerCallbacks migrationManagerCallbacks)
-		throws MigrationInProcessException {
+	public MigrationHandle start(@Nullable final String publicAddress,
+		final IMigrationManagerCallbacks migrationManagerCallbacks) throws MigrationInProcessException {
+		return start(publicAddress, MigrationHandle.NO_DEADLINE, TimeUnit.MILLISECONDS, migrationManagerCallbacks);
+	}
+
+	/**
+	 * Same as {@link #start(String, IMigrationManagerCallbacks)} but with an overall deadline.
+	 * <p>If the migration is not done when the timeout passes then it is stopped, its retries and network requests
+	 * are cancelled and the callback gets {@link MigrationCancelledException}.</p>
+	 *
+	 * @param publicAddress the address of the account to migrate.
+	 * @param timeout the maximum time the whole migration process is allowed to take.
+	 * @param timeUnit the unit of the timeout.
+	 * @param migrationManagerCallbacks is a listener so the caller can get a callback for completion or error(on the UI
+	 * thread).
+	 * @return a handle which can be used to cancel the migration.
+	 * @throws MigrationInProcessException is thrown in case this method is called while it is not finished.
+	 */
+	public MigrationHandle start(@Nullable final String publicAddress, long timeout, @NonNull TimeUnit timeUnit,
+		final IMigrationManagerCallbacks migrationManagerCallbacks) throws MigrationInProcessException {
 		eventsNotifier.onMethodStarted();
 		if (isMigrationInProcess.compareAndSet(false, true)) {
-			new Thread(new Runnable() {
+			long timeoutMillis = timeout == MigrationHandle.NO_DEADLINE ? timeout : timeUnit.toMillis(timeout);
+			final MigrationHandle handle = new MigrationHandle(timeoutMillis, new MigrationHandle.StopListener() {
+				@Override
+				public void onStopped(MigrationHandle handle, MigrationCancelledException exception) {
+					Logger.d("migration was stopped before it was done");
+					postOnError(migrationManagerCallbacks, exception);
+				}
+
+				@Override
+				public void onWorkersExited(MigrationHandle handle) {
+					isMigrationInProcess.set(false);
+				}
+			});
+			FutureTask<Void> worker = handle.newWorker(new Runnable() {
 				@Override
 				public void run() {
 					Logger.d("starting the migration process in a background thread");
-					startMigrationProcess(migrationManagerCallbacks, publicAddress);
+					try {
+						startMigrationProcess(handle, migrationManagerCallbacks, publicAddress);
+					} catch (RuntimeException e) {
+						fireOnError(handle, migrationManagerCallbacks,
+							new MigrationFailedException("Migration failed due to an unexpected error", e));
+					}
 				}
-			}).start();
+			});
+			try {
+				executor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				handle.markDone(false);
+				// the worker will never run, cancelling it ends the migration.
+				worker.cancel(false);
+				throw e;
+			}
+			return handle;
 		} else {
 			Logger.d("Migration is in process, throwing MigrationInProcessException");
 			throw new MigrationInProcessException("You can't start migration while migration is still in process");
 		}
 	}
 
-	private void startMigrationProcess(final IMigrationManagerCallbacks migrationManagerCallbacks,
-		final String publicAddress) {
+	/**
+	 * Starting the migration process of all the accounts on this device from Kin2(Core library) to the new Kin(Sdk
+	 * library - One Blockchain).
+	 * <p>The sdk version is resolved once for the whole batch, then the accounts are burned and migrated concurrently
+	 * (see {@link #setMaxConcurrentMigrations(int)}). The outcome of every account is reported in a single callback.</p>
+	 * <p><b>Note:</b> This method internally runs on the migration executor(see {@link #setExecutor(Executor)}) and it
+	 * is also access the network.</p>
+	 *
+	 * @param batchMigrationCallbacks is a listener so the caller can get a callback for completion or error(on the UI
+	 * thread).
+	 * @return a handle which can be used to cancel the whole batch.
+	 * @throws MigrationInProcessException is thrown in case a migration of this instance is not finished.
+	 */
+	public MigrationHandle startAll(@NonNull IBatchMigrationCallbacks batchMigrationCallbacks)
+		throws MigrationInProcessException {
+		return startBatch(null, batchMigrationCallbacks);
+	}
+
+	/**
+	 * Same as {@link #startAll(IBatchMigrationCallbacks)} but only for the given accounts.
+	 * <p>An address which is not found in the accounts on this device fails with
+	 * {@link AccountNotFoundLocallyException}, without failing the rest of the batch.</p>
+	 *
+	 * @param publicAddresses the addresses of the accounts to migrate.
+	 * @param batchMigrationCallbacks is a listener so the caller can get a callback for completion or error(on the UI
+	 * thread).
+	 * @return a handle which can be used to cancel the whole batch.
+	 * @throws MigrationInProcessException is thrown in case a migration of this instance is not finished.
+	 */
+	public MigrationHandle start(@NonNull Collection<String> publicAddresses,
+		@NonNull IBatchMigrationCallbacks batchMigrationCallbacks) throws MigrationInProcessException {
+		for (String publicAddress : publicAddresses) {
+			if (publicAddress == null) {
+				throw new IllegalArgumentException("publicAddresses must not contain null");
+			}
+		}
+		return startBatch(new ArrayList<>(new LinkedHashSet<>(publicAddresses)), batchMigrationCallbacks);
+	}
+
+	private MigrationHandle startBatch(@Nullable final List<String> publicAddresses,
+		final IBatchMigrationCallbacks batchMigrationCallbacks) throws MigrationInProcessException {
+		eventsNotifier.onMethodStarted();
+		if (isMigrationInProcess.compareAndSet(false, true)) {
+			final MigrationHandle handle = new MigrationHandle(MigrationHandle.NO_DEADLINE,
+				new MigrationHandle.StopListener() {
+					@Override
+					public void onStopped(MigrationHandle handle, MigrationCancelledException exception) {
+						Logger.d("batch migration was stopped before it was done");
+						postOnBatchError(batchMigrationCallbacks, exception);
+					}
+
+					@Override
+					public void onWorkersExited(MigrationHandle handle) {
+						isMigrationInProcess.set(false);
+					}
+				});
+			FutureTask<Void> worker = handle.newWorker(new Runnable() {
+				@Override
+				public void run() {
+					Logger.d("starting the batch migration process in a background thread");
+					try {
+						startBatchMigrationProcess(handle, batchMigrationCallbacks, publicAddresses);
+					} catch (RuntimeException e) {
+						fireOnBatchError(handle, batchMigrationCallbacks,
+							new MigrationFailedException("Migration failed due to an unexpected error", e));
+					}
+				}
+			});
+			try {
+				executor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				handle.markDone(false);
+				// the worker will never run, cancelling it ends the migration.
+				worker.cancel(false);
+				throw e;
+			}
+			return handle;
+		} else {
+			Logger.d("Migration is in process, throwing MigrationInProcessException");
+			throw new MigrationInProcessException("You can't start migration while migration is still in process");
+		}
+	}
+
+	private void startBatchMigrationProcess(final MigrationHandle handle,
+		final IBatchMigrationCallbacks batchMigrationCallbacks, @Nullable List<String> publicAddresses) {
+		KinClientCoreImpl kinClientCore = initKinCore();
+		IKinClient newKinClient = initNewKin();
+		if (publicAddresses == null) {
+			publicAddresses = getLocalPublicAddresses(kinClientCore);
+		}
+		List<String> readyAddresses = Collections.synchronizedList(new ArrayList<String>());
+		Map<String, Exception> failures = new ConcurrentHashMap<>();
+		List<String> pendingAddresses = new ArrayList<>();
+		for (String publicAddress : publicAddresses) {
+			if (TextUtils.isEmpty(publicAddress) || !newKinClient.hasAccount(publicAddress)) {
+				failures.put(publicAddress, new AccountNotFoundLocallyException());
+			} else if (isMigrationAlreadyCompleted(publicAddress)) {
+				readyAddresses.add(publicAddress);
+			} else {
+				pendingAddresses.add(publicAddress);
+			}
+		}
+		if (pendingAddresses.isEmpty()) {
+			fireOnBatchReady(handle, batchMigrationCallbacks, newKinClient,
+				new BatchMigrationResult(KinSdkVersion.NEW_KIN_SDK, readyAddresses, failures));
+			return;
+		}
+		try {
+			eventsNotifier.onVersionCheckStarted();
+			KinSdkVersion kinSdkVersion = getKinSdkVersion();
+			if (handle.shouldStop()) {
+				// the callback was already notified when the migration was stopped.
+				return;
+			}
+			if (kinSdkVersion == null) {
+				Exception failure = new FailedToResolveSdkVersionException();
+				eventsNotifier.onVersionCheckFailed(failure);
+				fireOnBatchError(handle, batchMigrationCallbacks, failure);
+			} else if (kinSdkVersion == KinSdkVersion.NEW_KIN_SDK) {
+				eventsNotifier.onVersionCheckSucceeded(KinSdkVersion.NEW_KIN_SDK);
+				postBatchMigrationStart(handle, batchMigrationCallbacks);
+				burnAndMigrateConcurrently(handle, kinClientCore, pendingAddresses, readyAddresses, failures);
+				if (handle.shouldStop()) {
+					return;
+				}
+				for (String publicAddress : pendingAddresses) {
+					if (!failures.containsKey(publicAddress)) {
+						saveMigrationCompleted(publicAddress);
+					}
+				}
+				fireOnBatchReady(handle, batchMigrationCallbacks, newKinClient,
+					new BatchMigrationResult(KinSdkVersion.NEW_KIN_SDK, readyAddresses, failures));
+			} else {
+				eventsNotifier.onVersionCheckSucceeded(KinSdkVersion.OLD_KIN_SDK);
+				eventsNotifier.onCallbackReady(KinSdkVersion.OLD_KIN_SDK, SelectedSdkReason.API_CHECK);
+				readyAddresses.addAll(pendingAddresses);
+				fireOnBatchReady(handle, batchMigrationCallbacks, kinClientCore,
+					new BatchMigrationResult(KinSdkVersion.OLD_KIN_SDK, readyAddresses, failures));
+			}
+		} catch (FailedToResolveSdkVersionException e) {
+			eventsNotifier.onVersionCheckFailed(e);
+			fireOnBatchError(handle, batchMigrationCallbacks, e);
+		}
+	}
+
+	/**
+	 * Burn the accounts, up to {@link #maxConcurrentMigrations} at the same time, and then migrate all the burned
+	 * accounts together, so the migration service can handle them in batch requests.
+	 * <p>The accounts are taken from a shared queue by this thread and by helper tasks on the executor. When this
+	 * thread is done it runs here every helper that didn't get a thread yet, so the batch can't wait forever on a busy
+	 * executor.</p>
+	 */
+	private void burnAndMigrateConcurrently(final MigrationHandle handle, final KinClientCoreImpl kinClientCore,
+		List<String> publicAddresses, final List<String> readyAddresses, final Map<String, Exception> failures) {
+		final Queue<String> queue = new ConcurrentLinkedQueue<>(publicAddresses);
+		final List<String> burnedAddresses = Collections.synchronizedList(new ArrayList<String>());
+		Runnable drainQueue = new Runnable() {
+			@Override
+			public void run() {
+				String publicAddress;
+				while (!handle.shouldStop() && (publicAddress = queue.poll()) != null) {
+					try {
+						KinAccountCoreImpl account = getKinAccountCore(kinClientCore, publicAddress);
+						if (account != null && burn(handle, account, null)) {
+							burnedAddresses.add(publicAddress);
+						} else {
+							if (account == null) {
+								eventsNotifier.onCallbackReady(KinSdkVersion.NEW_KIN_SDK,
+									SelectedSdkReason.NO_ACCOUNT_TO_MIGRATE);
+							}
+							readyAddresses.add(publicAddress);
+						}
+					} catch (Exception e) {
+						failures.put(publicAddress, e);
+					}
+				}
+			}
+		};
+		int helpersCount = Math.min(maxConcurrentMigrations, publicAddresses.size()) - 1;
+		List<FutureTask<Void>> helpers = new ArrayList<>(helpersCount);
+		for (int i = 0; i < helpersCount; i++) {
+			FutureTask<Void> helper = handle.newWorker(drainQueue);
+			try {
+				executor.execute(helper);
+			} catch (RejectedExecutionException e) {
+				Logger.d("batch migration helper was rejected by the executor");
+				helper.cancel(false);
+				break;
+			}
+			helpers.add(helper);
+		}
+		drainQueue.run();
+		for (FutureTask<Void> helper : helpers) {
+			// If the helper is still waiting for a free thread then run it here, otherwise this call does nothing.
+			helper.run();
+			try {
+				helper.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (CancellationException | ExecutionException e) {
+				Logger.e("batch migration helper failed", e);
+			}
+		}
+		if (burnedAddresses.isEmpty() || handle.shouldStop()) {
+			return;
+		}
+		AccountMigrator accountMigrator = new AccountMigrator(eventsNotifier, migrationNetworkInfo,
+			migrationHttpClient, handle);
+		Map<String, Exception> migrationFailures = accountMigrator.migrateToNewKin(burnedAddresses);
+		for (String publicAddress : burnedAddresses) {
+			Exception failure = migrationFailures.get(publicAddress);
+			if (failure != null) {
+				failures.put(publicAddress, failure);
+			} else {
+				readyAddresses.add(publicAddress);
+			}
+		}
+	}
+
+	private List<String> getLocalPublicAddresses(KinClientCoreImpl kinClientCore) {
+		int numOfAccounts = kinClientCore.getAccountCount();
+		List<String> publicAddresses = new ArrayList<>(numOfAccounts);
+		for (int i = 0; i < numOfAccounts; i++) {
+			IKinAccount account = kinClientCore.getAccount(i);
+			if (account != null && account.getPublicAddress() != null) {
+				publicAddresses.add(account.getPublicAddress());
+			}
+		}
+		return publicAddresses;
+	}
+
+	private void startMigrationProcess(final MigrationHandle handle,
+		final IMigrationManagerCallbacks migrationManagerCallbacks, final String publicAddress) {
 		final IKinClient newKinClient = initNewKin();
-		if (validatePublicAddress(publicAddress, newKinClient, migrationManagerCallbacks)) {
+		if (validatePublicAddress(handle, publicAddress, newKinClient, migrationManagerCallbacks)) {
 			if (isMigrationAlreadyCompleted(publicAddress)) {
 				eventsNotifier.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.ALREADY_MIGRATED);
-				fireOnReady(migrationManagerCallbacks, newKinClient, publicAddress, false);
+				fireOnReady(handle, migrationManagerCallbacks, newKinClient, publicAddress, false);
 			} else {
+				FutureTask<CheckBurnReason> speculativeBurnCheck = null;
+				// no need to check the burn state if a previous attempt already checkpointed that it is burned.
+				MigrationState checkpoint = migrationStateCache.getState(publicAddress);
+				if (speculativeBurnCheckEnabled && (checkpoint == null || !checkpoint.isBurned())) {
+					speculativeBurnCheck = startSpeculativeBurnCheck(handle, publicAddress);
+				}
 				try {
 					eventsNotifier.onVersionCheckStarted();
-					KinSdkVersion kinSdkVersion = kinVersionProvider.getKinSdkVersion();
+					KinSdkVersion kinSdkVersion = getKinSdkVersion();
+					if (handle.shouldStop()) {
+						// the callback was already notified when the migration was stopped.
+						return;
+					}
 					if (kinSdkVersion == null) {
 						Exception failure = new FailedToResolveSdkVersionException();
 						eventsNotifier.onVersionCheckFailed(failure);
-						fireOnError(migrationManagerCallbacks, failure);
+						fireOnError(handle, migrationManagerCallbacks, failure);
 					} else {
 						if (kinSdkVersion == KinSdkVersion.NEW_KIN_SDK) {
 							eventsNotifier.onVersionCheckSucceeded(KinSdkVersion.NEW_KIN_SDK);
-							burnAndMigrateAccount(newKinClient, publicAddress, migrationManagerCallbacks);
+							burnAndMigrateAccount(handle, newKinClient, publicAddress, migrationManagerCallbacks,
+								speculativeBurnCheck);
 						} else {
 							eventsNotifier.onVersionCheckSucceeded(KinSdkVersion.OLD_KIN_SDK);
 							eventsNotifier.onCallbackReady(KinSdkVersion.OLD_KIN_SDK, SelectedSdkReason.API_CHECK);
-							fireOnReady(migrationManagerCallbacks, initKinCore(), publicAddress, false);
+							fireOnReady(handle, migrationManagerCallbacks, initKinCore(), publicAddress, false);
 						}
 					}
 				} catch (FailedToResolveSdkVersionException e) {
 					eventsNotifier.onVersionCheckFailed(e);
-					fireOnError(migrationManagerCallbacks, e);
+					fireOnError(handle, migrationManagerCallbacks, e);
+				} finally {
+					// If the speculative result wasn't used then it is discarded, and the check stops hitting the
+					// network for a migration that doesn't need it anymore.
+					if (speculativeBurnCheck != null) {
+						speculativeBurnCheck.cancel(true);
+					}
 				}
 			}
 		}
 	}
 
+	@Nullable
+	private KinSdkVersion getKinSdkVersion() throws FailedToResolveSdkVersionException {
+		MigrationMetrics metrics = MigrationMetrics.getInstance();
+		long startNanos = metrics.begin(MigrationMetrics.Stage.VERSION_CHECK);
+		boolean success = false;
+		try {
+			KinSdkVersion kinSdkVersion = kinVersionProvider.getKinSdkVersion();
+			success = kinSdkVersion != null;
+			return kinSdkVersion;
+		} finally {
+			metrics.end(MigrationMetrics.Stage.VERSION_CHECK, startNanos, success);
+		}
+	}
+
+	/**
+	 * Start checking the burn state of the account in the background, without waiting for the version check.
+	 *
+	 * @return the pending check or null if there is nothing to check or it couldn't be scheduled.
+	 */
+	@Nullable
+	private FutureTask<CheckBurnReason> startSpeculativeBurnCheck(final MigrationHandle handle,
+		final String publicAddress) {
+		if (TextUtils.isEmpty(publicAddress)) {
+			return null;
+		}
+		// a worker of the migration, so it is interrupted when the migration stops and the migration exits after it.
+		FutureTask<CheckBurnReason> speculativeBurnCheck = handle.newWorker(new Callable<CheckBurnReason>() {
+			@Override
+			public CheckBurnReason call() throws Exception {
+				KinAccountCoreImpl account = getKinAccountCore(initKinCore(), publicAddress);
+				return account != null ? new AccountBurner(eventsNotifier, handle).probeAccountBurnedState(account) : null;
+			}
+		});
+		try {
+			executor.execute(speculativeBurnCheck);
+		} catch (RejectedExecutionException e) {
+			Logger.d("speculative burn check was rejected by the executor");
+			speculativeBurnCheck.cancel(false);
+			return null;
+		}
+		return speculativeBurnCheck;
+	}
+
 	/**
 	 * Return true if can continue with the migration process because everything is ok with the supplied public address,
 	 * false otherwise
 	 */
-	private boolean validatePublicAddress(String publicAddress, IKinClient newKinClient,
+	private boolean validatePublicAddress(MigrationHandle handle, String publicAddress, IKinClient newKinClient,
 		IMigrationManagerCallbacks migrationManagerCallbacks) {
 		boolean validatePublicAddress = true;
 		boolean publicAddressIsEmpty = TextUtils.isEmpty(publicAddress);
@@ -192,12 +667,12 @@ public class MigrationManager {
 		if (hasAccounts && !publicAddressIsEmpty) {
 			if (!isAccountFoundInListOfAccounts(newKinClient, publicAddress)) {
 				validatePublicAddress = false;
-				fireOnError(migrationManagerCallbacks, accountNotFoundLocallyException);
+				fireOnError(handle, migrationManagerCallbacks, accountNotFoundLocallyException);
 			}
 			// ignore the warning because it is more readable and understandable this way
 		} else if ((hasAccounts && publicAddressIsEmpty) || (!hasAccounts && !publicAddressIsEmpty)) {
 			validatePublicAddress = false;
-			fireOnError(migrationManagerCallbacks, accountNotFoundLocallyException);
+			fireOnError(handle, migrationManagerCallbacks, accountNotFoundLocallyException);
 		}
 		return validatePublicAddress;
 	}
@@ -207,74 +682,78 @@ public class MigrationManager {
 		// If we have at least one account and they didn't supply public address or if we have at least one account
 		// and they supply a public address but it wasn't found in the list of accounts twe will return false.
 		if (kinClient.hasAccount() && !TextUtils.isEmpty(publicAddress)) {
-			if (!TextUtils.isEmpty(publicAddress)) {
-				int numOfAccounts = kinClient.getAccountCount();
-				for (int i = 0; i < numOfAccounts; i++) {
-					IKinAccount account = kinClient.getAccount(i);
-					if (account != null && account.getPublicAddress().equals(publicAddress)) {
-						isAccountFoundInListOfAccounts = true;
-						break;
-					}
-				}
-			}
+			isAccountFoundInListOfAccounts = kinClient.hasAccount(publicAddress);
 		}
 		return isAccountFoundInListOfAccounts;
 	}
 
-	private void burnAndMigrateAccount(final IKinClient newKinClient, String publicAddress,
-		final IMigrationManagerCallbacks migrationManagerCallbacks) {
+	private void burnAndMigrateAccount(final MigrationHandle handle, final IKinClient newKinClient,
+		String publicAddress, final IMigrationManagerCallbacks migrationManagerCallbacks,
+		@Nullable FutureTask<CheckBurnReason> speculativeBurnCheck) {
 		KinClientCoreImpl kinClientCore = initKinCore();
 		if (kinClientCore.hasAccount() && !TextUtils.isEmpty(publicAddress)) {
-			postMigrationStart(migrationManagerCallbacks);
+			postMigrationStart(handle, migrationManagerCallbacks);
 			KinAccountCoreImpl account = getKinAccountCore(kinClientCore, publicAddress);
 			try {
-				AccountBurner accountBurner = new AccountBurner(eventsNotifier);
-				BurnReason burnSuccessReason = accountBurner.start(account);
-				switch (burnSuccessReason) {
-					case BURNED:
-					case ALREADY_BURNED:
-						AccountMigrator accountMigrator = new AccountMigrator(eventsNotifier, migrationNetworkInfo);
-						try {
-							accountMigrator.migrateToNewKin(publicAddress);
-							fireOnReady(migrationManagerCallbacks, newKinClient, publicAddress, true);
-						} catch (Exception e) {
-							fireOnError(migrationManagerCallbacks, e);
-						}
-						break;
-					case NO_ACCOUNT:
-					case NO_TRUSTLINE:
-						eventsNotifier
-							.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.NO_ACCOUNT_TO_MIGRATE);
-						fireOnReady(migrationManagerCallbacks, newKinClient, publicAddress, true);
-						break;
-				}
-			} catch (MigrationFailedException e) {
-				fireOnError(migrationManagerCallbacks, e);
+				burnAndMigrate(handle, account, publicAddress, speculativeBurnCheck);
+				fireOnReady(handle, migrationManagerCallbacks, newKinClient, publicAddress, true);
+			} catch (Exception e) {
+				fireOnError(handle, migrationManagerCallbacks, e);
 			}
 		} else {
 			eventsNotifier.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.NO_ACCOUNT_TO_MIGRATE);
-			fireOnReady(migrationManagerCallbacks, newKinClient, publicAddress, true);
+			fireOnReady(handle, migrationManagerCallbacks, newKinClient, publicAddress, true);
+		}
+	}
+
+	/**
+	 * Burn the account on the old kin blockchain, if it is not burned yet, and then migrate it to the new kin
+	 * blockchain.
+	 */
+	private void burnAndMigrate(MigrationHandle handle, KinAccountCoreImpl account, String publicAddress,
+		@Nullable FutureTask<CheckBurnReason> speculativeBurnCheck) throws Exception {
+		if (burn(handle, account, speculativeBurnCheck)) {
+			AccountMigrator accountMigrator = new AccountMigrator(eventsNotifier, migrationNetworkInfo,
+				migrationHttpClient, handle);
+			accountMigrator.migrateToNewKin(publicAddress);
+		}
+	}
+
+	/**
+	 * Burn the account on the old kin blockchain, if it is not burned yet.
+	 *
+	 * @return true if the account is burned and should be migrated, false if there is nothing to migrate.
+	 */
+	private boolean burn(MigrationHandle handle, KinAccountCoreImpl account,
+		@Nullable FutureTask<CheckBurnReason> speculativeBurnCheck) throws MigrationFailedException {
+		AccountBurner accountBurner = new AccountBurner(eventsNotifier, handle, migrationStateCache);
+		BurnReason burnSuccessReason = accountBurner.start(account, speculativeBurnCheck);
+		handle.throwIfStopped();
+		switch (burnSuccessReason) {
+			case BURNED:
+			case ALREADY_BURNED:
+				return true;
+			default:
+				eventsNotifier.onCallbackReady(KinSdkVersion.NEW_KIN_SDK, SelectedSdkReason.NO_ACCOUNT_TO_MIGRATE);
+				return false;
 		}
 	}
 
 	private KinAccountCoreImpl getKinAccountCore(KinClientCoreImpl kinClientCore, String publicAddress) {
-		IKinAccount kinAccount = null;
+		KinAccountCoreImpl kinAccount = null;
 		if (kinClientCore != null && !TextUtils.isEmpty(publicAddress)) {
-			int numOfAccounts = kinClientCore.getAccountCount();
-			for (int i = 0; i < numOfAccounts; i++) {
-				IKinAccount account = kinClientCore.getAccount(i);
-				if (account != null && account.getPublicAddress().equals(publicAddress)) {
-					kinAccount = account;
-					break;
-				}
-			}
+			kinAccount = kinClientCore.getAccount(publicAddress);
 		}
-		return (KinAccountCoreImpl) kinAccount;
+		return kinAccount;
 	}
 
-	private void postMigrationStart(final IMigrationManagerCallbacks migrationManagerCallbacks) {
+	private void postMigrationStart(MigrationHandle handle,
+		final IMigrationManagerCallbacks migrationManagerCallbacks) {
+		if (handle.isDone()) {
+			return;
+		}
 		eventsNotifier.onCallbackStart();
-		handler.post(new Runnable() {
+		dispatchCallback(new Runnable() {
 			@Override
 			public void run() {
 				migrationManagerCallbacks.onMigrationStart();
@@ -284,52 +763,71 @@ public class MigrationManager {
 
 	@NonNull
 	private KinClientCoreImpl initKinCore() {
-		ServiceProvider environment = new ServiceProvider(migrationNetworkInfo.getCoreNetworkUrl(),
-			migrationNetworkInfo.getCoreNetworkId()) {
+		String clientKey = KinSdkVersion.OLD_KIN_SDK.getVersion() + '|' + migrationNetworkInfo.getCoreNetworkUrl()
+			+ '|' + migrationNetworkInfo.getCoreNetworkId() + '|' + migrationNetworkInfo.getIssuer() + '|' + appId
+			+ '|' + storeKey;
+		return KinClientCache.get(clientKey, storeKey, new KinClientCache.Factory<KinClientCoreImpl>() {
 			@Override
-			protected String getIssuerAccountId() {
-				return migrationNetworkInfo.getIssuer();
+			public KinClientCoreImpl create(OnAccountsChangedListener onAccountsChangedListener) {
+				ServiceProvider environment = new ServiceProvider(migrationNetworkInfo.getCoreNetworkUrl(),
+					migrationNetworkInfo.getCoreNetworkId()) {
+					@Override
+					protected String getIssuerAccountId() {
+						return migrationNetworkInfo.getIssuer();
+					}
+				};
+				KinClientCoreImpl kinClient = new KinClientCoreImpl(context, environment, appId, storeKey);
+				kinClient.setOnAccountsChangedListener(onAccountsChangedListener);
+				return kinClient;
 			}
-		};
-		return new KinClientCoreImpl(context, environment, appId, storeKey);
+		});
 	}
 
 	@NonNull
 	private IKinClient initNewKin() {
-		IKinClient kinClient;
-		Environment environment = new Environment(migrationNetworkInfo.getSdkNetworkUrl(),
-			migrationNetworkInfo.getSdkNetworkId());
-		kinClient = new KinClientSdkImpl(context, environment, appId, storeKey);
-		return kinClient;
+		String clientKey = KinSdkVersion.NEW_KIN_SDK.getVersion() + '|' + migrationNetworkInfo.getSdkNetworkUrl()
+			+ '|' + migrationNetworkInfo.getSdkNetworkId() + '|' + appId + '|' + storeKey;
+		return KinClientCache.get(clientKey, storeKey, new KinClientCache.Factory<KinClientSdkImpl>() {
+			@Override
+			public KinClientSdkImpl create(OnAccountsChangedListener onAccountsChangedListener) {
+				Environment environment = new Environment(migrationNetworkInfo.getSdkNetworkUrl(),
+					migrationNetworkInfo.getSdkNetworkId());
+				KinClientSdkImpl kinClient = new KinClientSdkImpl(context, environment, appId, storeKey);
+				kinClient.setOnAccountsChangedListener(onAccountsChangedListener);
+				return kinClient;
+			}
+		});
 	}
 
 	private void saveMigrationCompleted(String publicAddress) {
-		// save migration completion status from the persistent state.
-		SharedPreferences sharedPreferences = getSharedPreferences();
-		sharedPreferences.edit().putBoolean(KIN_MIGRATION_COMPLETED_KEY + publicAddress, true).apply();
+		// save migration completion status, written through to the persistent state.
+		migrationStateCache.setMigrated(publicAddress);
 	}
 
 	private boolean isMigrationAlreadyCompleted(String publicAddress) {
-		// get migration completion status from the persistent state.
-		boolean isMigrationAlreadyCompleted = false;
-		if (!TextUtils.isEmpty(publicAddress)) {
-			SharedPreferences sharedPreferences = getSharedPreferences();
-			isMigrationAlreadyCompleted = sharedPreferences
-				.getBoolean(KIN_MIGRATION_COMPLETED_KEY + publicAddress, false);
-		}
-		return isMigrationAlreadyCompleted;
+		// get migration completion status, served from memory after the persistent state was loaded once.
+		return migrationStateCache.isMigrated(publicAddress);
 	}
 
-	private SharedPreferences getSharedPreferences() {
-		return context.getSharedPreferences(KIN_MIGRATION_MODULE_PREFERENCE_FILE_KEY, Context.MODE_PRIVATE);
+	private void fireOnError(MigrationHandle handle, final IMigrationManagerCallbacks migrationManagerCallbacks,
+		final Exception e) {
+		// only the first outcome of a migration is reported, a stopped migration was already reported.
+		if (handle.markDone(false)) {
+			// reported once the worker exited, so the callback can already start a new migration.
+			handle.runAfterWorkersExited(new Runnable() {
+				@Override
+				public void run() {
+					postOnError(migrationManagerCallbacks, e);
+				}
+			});
+		}
 	}
 
-	private void fireOnError(final IMigrationManagerCallbacks migrationManagerCallbacks, final Exception e) {
+	private void postOnError(final IMigrationManagerCallbacks migrationManagerCallbacks, final Exception e) {
 		eventsNotifier.onCallbackFailed(e);
-		handler.post(new Runnable() {
+		dispatchCallback(new Runnable() {
 			@Override
 			public void run() {
-				isMigrationInProcess.set(false);
 				if (migrationManagerCallbacks != null) {
 					migrationManagerCallbacks.onError(e);
 				}
@@ -337,21 +835,93 @@ public class MigrationManager {
 		});
 	}
 
-	private void fireOnReady(final IMigrationManagerCallbacks migrationManagerCallbacks, final IKinClient kinClient,
-		final String publicAddress, final boolean needToSave) {
-		handler.post(new Runnable() {
+	private void fireOnReady(MigrationHandle handle, final IMigrationManagerCallbacks migrationManagerCallbacks,
+		final IKinClient kinClient, final String publicAddress, final boolean needToSave) {
+		if (!handle.markDone(true)) {
+			return;
+		}
+		// If no accounts and no public address then that mean we can supply a kinClient object to begin with.
+		// Or if the account has been found in the list of account then we can supply that kinClient which includes this account.
+		// The state is saved here on the migration thread, before the callback is dispatched.
+		if (needToSave && kinClient.hasAccount() && !TextUtils.isEmpty(publicAddress)) {
+			saveMigrationCompleted(publicAddress);
+		}
+		handle.runAfterWorkersExited(new Runnable() {
 			@Override
 			public void run() {
-				isMigrationInProcess.set(false);
-				// If no accounts and no public address then that mean we can supply a kinClient object to begin with.
-				// Or if the account has been found in the list of account then we can supply that kinClient which includes this account.
-				if (needToSave && kinClient.hasAccount() && !TextUtils.isEmpty(publicAddress)) {
-					saveMigrationCompleted(publicAddress);
-				}
-				if (migrationManagerCallbacks != null) {
-					migrationManagerCallbacks.onReady(kinClient);
+				dispatchCallback(new Runnable() {
+					@Override
+					public void run() {
+						if (migrationManagerCallbacks != null) {
+							migrationManagerCallbacks.onReady(kinClient);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private void postBatchMigrationStart(MigrationHandle handle,
+		final IBatchMigrationCallbacks batchMigrationCallbacks) {
+		if (handle.isDone()) {
+			return;
+		}
+		eventsNotifier.onCallbackStart();
+		dispatchCallback(new Runnable() {
+			@Override
+			public void run() {
+				batchMigrationCallbacks.onMigrationStart();
+			}
+		});
+	}
+
+	private void fireOnBatchError(MigrationHandle handle, final IBatchMigrationCallbacks batchMigrationCallbacks,
+		final Exception e) {
+		if (handle.markDone(false)) {
+			handle.runAfterWorkersExited(new Runnable() {
+				@Override
+				public void run() {
+					postOnBatchError(batchMigrationCallbacks, e);
 				}
+			});
+		}
+	}
+
+	private void postOnBatchError(final IBatchMigrationCallbacks batchMigrationCallbacks, final Exception e) {
+		eventsNotifier.onCallbackFailed(e);
+		dispatchCallback(new Runnable() {
+			@Override
+			public void run() {
+				batchMigrationCallbacks.onError(e);
 			}
 		});
 	}
-}
\ No newline at end of file
+
+	private void fireOnBatchReady(MigrationHandle handle, final IBatchMigrationCallbacks batchMigrationCallbacks,
+		final IKinClient kinClient, final BatchMigrationResult result) {
+		if (!handle.markDone(true)) {
+			return;
+		}
+		handle.runAfterWorkersExited(new Runnable() {
+			@Override
+			public void run() {
+				dispatchCallback(new Runnable() {
+					@Override
+					public void run() {
+						batchMigrationCallbacks.onReady(kinClient, result);
+					}
+				});
+			}
+		});
+	}
+
+	private void dispatchCallback(Runnable callback) {
+		try {
+			callbackExecutor.execute(callback);
+		} catch (RejectedExecutionException e) {
+			// the callback must not be lost, the caller waits for it.
+			Logger.e("callback executor rejected the callback, calling it on the main thread", e);
+			handler.post(callback);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process wide performance metrics of the migration pipeline, separate from the BI events of
+ * {@link kin.sdk.migration.bi.IMigrationEventsListener}.
+ * <p>Records the latency histogram, failures, retries and in flight count of every {@link Stage}, and the
+ * distribution of the http status codes of the migration service. Recording is lock free and doesn't allocate, so it
+ * is always on. Use {@link #snapshot()} to read the metrics.</p>
+ */
+public final class MigrationMetrics {
+
+	public enum Stage {
+		/**
+		 * Resolving the sdk version with the {@link kin.sdk.migration.common.interfaces.IKinVersionProvider}.
+		 */
+		VERSION_CHECK,
+		/**
+		 * Checking if the account is already burned on the Kin2 blockchain, retries included.
+		 */
+		BURN_CHECK,
+		/**
+		 * Sending the burn transaction to the Kin2 blockchain, retries included.
+		 */
+		BURN_TRANSACTION,
+		/**
+		 * The request to the migration service, retries included.
+		 */
+		MIGRATION_REQUEST,
+		/**
+		 * The whole migration, from the call to start until the callback is fired.
+		 */
+		TIME_TO_READY
+	}
+
+	/**
+	 * Bucket i counts the latencies in [2^(i-1), 2^i) milliseconds, bucket 0 counts the ones under 1 millisecond and
+	 * the last bucket counts everything above.
+	 */
+	static final int BUCKETS_COUNT = 20;
+	private static final int MAX_HTTP_STATUS = 600;
+	private static final int STAGES_COUNT = Stage.values().length;
+	// per stage values, each one in its own slot of the array.
+	private static final int COUNT = 0;
+	private static final int FAILURES = 1;
+	private static final int TOTAL_MILLIS = 2;
+	private static final int MAX_MILLIS = 3;
+	private static final int RETRIES = 4;
+	private static final int IN_FLIGHT = 5;
+	private static final int VALUES_COUNT = 6;
+
+	private static final MigrationMetrics instance = new MigrationMetrics();
+
+	private final AtomicLongArray buckets;
+	private final AtomicLongArray values;
+	private final AtomicLongArray httpStatuses;
+
+	public static MigrationMetrics getInstance() {
+		return instance;
+	}
+
+	MigrationMetrics() {
+		buckets = new AtomicLongArray(STAGES_COUNT * BUCKETS_COUNT);
+		values = new AtomicLongArray(STAGES_COUNT * VALUES_COUNT);
+		httpStatuses = new AtomicLongArray(MAX_HTTP_STATUS);
+	}
+
+	/**
+	 * Mark the beginning of a stage.
+	 *
+	 * @return the start time, to pass to {@link #end(Stage, long, boolean)}.
+	 */
+	long begin(Stage stage) {
+		values.incrementAndGet(valueIndex(stage, IN_FLIGHT));
+		return System.nanoTime();
+	}
+
+	/**
+	 * Mark the end of a stage that was started with {@link #begin(Stage)}.
+	 */
+	void end(Stage stage, long startNanos, boolean success) {
+		values.decrementAndGet(valueIndex(stage, IN_FLIGHT));
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		buckets.incrementAndGet(stage.ordinal() * BUCKETS_COUNT + bucketOf(millis));
+		values.incrementAndGet(valueIndex(stage, COUNT));
+		values.addAndGet(valueIndex(stage, TOTAL_MILLIS), millis);
+		if (!success) {
+			values.incrementAndGet(valueIndex(stage, FAILURES));
+		}
+		int maxIndex = valueIndex(stage, MAX_MILLIS);
+		long max = values.get(maxIndex);
+		while (millis > max && !values.compareAndSet(maxIndex, max, millis)) {
+			max = values.get(maxIndex);
+		}
+	}
+
+	void recordRetry(Stage stage) {
+		values.incrementAndGet(valueIndex(stage, RETRIES));
+	}
+
+	void recordHttpStatus(int status) {
+		if (status >= 0 && status < MAX_HTTP_STATUS) {
+			httpStatuses.incrementAndGet(status);
+		}
+	}
+
+	/**
+	 * @return a copy of the current metrics, the recording goes on while the copy is made so the values of different
+	 * stages may be a few events apart.
+	 */
+	@NonNull
+	public Snapshot snapshot() {
+		long[][] stageBuckets = new long[STAGES_COUNT][BUCKETS_COUNT];
+		long[][] stageValues = new long[STAGES_COUNT][VALUES_COUNT];
+		for (int stage = 0; stage < STAGES_COUNT; stage++) {
+			for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++) {
+				stageBuckets[stage][bucket] = buckets.get(stage * BUCKETS_COUNT + bucket);
+			}
+			for (int value = 0; value < VALUES_COUNT; value++) {
+				stageValues[stage][value] = values.get(stage * VALUES_COUNT + value);
+			}
+		}
+		Map<Integer, Long> statuses = new LinkedHashMap<>();
+		for (int status = 0; status < MAX_HTTP_STATUS; status++) {
+			long count = httpStatuses.get(status);
+			if (count > 0) {
+				statuses.put(status, count);
+			}
+		}
+		return new Snapshot(stageBuckets, stageValues, Collections.unmodifiableMap(statuses));
+	}
+
+	/**
+	 * Clear all the metrics, except the in flight counts which still belong to running stages.
+	 */
+	public void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		for (Stage stage : Stage.values()) {
+			for (int value = 0; value < VALUES_COUNT; value++) {
+				if (value != IN_FLIGHT) {
+					values.set(valueIndex(stage, value), 0);
+				}
+			}
+		}
+		for (int i = 0; i < httpStatuses.length(); i++) {
+			httpStatuses.set(i, 0);
+		}
+	}
+
+	static int bucketOf(long millis) {
+		return millis <= 0 ? 0 : Math.min(BUCKETS_COUNT - 1, 64 - Long.numberOfLeadingZeros(millis));
+	}
+
+	private static int valueIndex(Stage stage, int value) {
+		return stage.ordinal() * VALUES_COUNT + value;
+	}
+
+	/**
+	 * An immutable copy of the metrics.
+	 */
+	public static final class Snapshot {
+
+		private final long[][] buckets;
+		private final long[][] values;
+		private final Map<Integer, Long> httpStatuses;
+
+		private Snapshot(long[][] buckets, long[][] values, Map<Integer, Long> httpStatuses) {
+			this.buckets = buckets;
+			this.values = values;
+			this.httpStatuses = httpStatuses;
+		}
+
+		/**
+		 * @return the number of times the stage was completed, successfully or not.
+		 */
+		public long getCount(Stage stage) {
+			return values[stage.ordinal()][COUNT];
+		}
+
+		public long getFailures(Stage stage) {
+			return values[stage.ordinal()][FAILURES];
+		}
+
+		public long getRetries(Stage stage) {
+			return values[stage.ordinal()][RETRIES];
+		}
+
+		/**
+		 * @return the number of times the stage is running right now.
+		 */
+		public long getInFlight(Stage stage) {
+			return values[stage.ordinal()][IN_FLIGHT];
+		}
+
+		public long getMaxMillis(Stage stage) {
+			return values[stage.ordinal()][MAX_MILLIS];
+		}
+
+		public double getMeanMillis(Stage stage) {
+			long count = getCount(stage);
+			return count == 0 ? 0 : (double) values[stage.ordinal()][TOTAL_MILLIS] / count;
+		}
+
+		/**
+		 * @param percentile between 0 and 100.
+		 * @return an upper bound of the latency percentile, the histogram buckets are powers of 2 milliseconds.
+		 */
+		public long getPercentileMillis(Stage stage, double percentile) {
+			long count = getCount(stage);
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(count * percentile / 100);
+			long seen = 0;
+			long[] stageBuckets = buckets[stage.ordinal()];
+			for (int bucket = 0; bucket < BUCKETS_COUNT - 1; bucket++) {
+				seen += stageBuckets[bucket];
+				if (seen >= rank) {
+					return Math.min(1L << bucket, getMaxMillis(stage));
+				}
+			}
+			return getMaxMillis(stage);
+		}
+
+		/**
+		 * @return the count of every http status code the migration service responded with, retries included.
+		 */
+		@NonNull
+		public Map<Integer, Long> getHttpStatuses() {
+			return httpStatuses;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("MigrationMetrics{");
+			for (Stage stage : Stage.values()) {
+				builder.append(stage.name())
+					.append("={count=").append(getCount(stage))
+					.append(", failures=").append(getFailures(stage))
+					.append(", retries=").append(getRetries(stage))
+					.append(", inFlight=").append(getInFlight(stage))
+					.append(", meanMillis=").append(Math.round(getMeanMillis(stage)))
+					.append(", p50Millis=").append(getPercentileMillis(stage, 50))
+					.append(", p99Millis=").append(getPercentileMillis(stage, 99))
+					.append(", maxMillis=").append(getMaxMillis(stage))
+					.append("}, ");
+			}
+			return builder.append("httpStatuses=").append(httpStatuses).append('}').toString();
+		}
+	}
+}
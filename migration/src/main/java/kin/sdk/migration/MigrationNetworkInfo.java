@@ -1,6 +1,8 @@
 package kin.sdk.migration;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import okhttp3.OkHttpClient;
 
 public class MigrationNetworkInfo {
 
@@ -10,16 +12,47 @@ public class MigrationNetworkInfo {
     private final String sdkNetworkId;
     private final String issuer;
     private final String migrationServiceUrl;
+    private final String migrationServiceBatchUrl;
+    private final OkHttpClient okHttpClient;
 
     public MigrationNetworkInfo(@NonNull String coreNetworkUrl, @NonNull String coreNetworkId,
         @NonNull String sdkNetworkUrl,
         @NonNull String sdkNetworkId, @NonNull String issuer, @NonNull String migrationServiceUrl) {
+        this(coreNetworkUrl, coreNetworkId, sdkNetworkUrl, sdkNetworkId, issuer, migrationServiceUrl, null);
+    }
+
+    /**
+     * @param okHttpClient an optional client for the requests to the migration service. Its connection pool and
+     * dispatcher are reused, so the migration can share connections with the rest of the app. If null then a process
+     * wide client, shared by all the migrations, is used.
+     */
+    public MigrationNetworkInfo(@NonNull String coreNetworkUrl, @NonNull String coreNetworkId,
+        @NonNull String sdkNetworkUrl,
+        @NonNull String sdkNetworkId, @NonNull String issuer, @NonNull String migrationServiceUrl,
+        @Nullable OkHttpClient okHttpClient) {
+        this(coreNetworkUrl, coreNetworkId, sdkNetworkUrl, sdkNetworkId, issuer, migrationServiceUrl, null,
+            okHttpClient);
+    }
+
+    /**
+     * @param migrationServiceBatchUrl an optional url of the migration service which migrates several accounts in one
+     * request, used when a batch of accounts is migrated. If null, or if the service doesn't support it, then every
+     * account is migrated with its own request to the migrationServiceUrl.
+     * @param okHttpClient an optional client for the requests to the migration service, see
+     * {@link #MigrationNetworkInfo(String, String, String, String, String, String, OkHttpClient)}.
+     */
+    public MigrationNetworkInfo(@NonNull String coreNetworkUrl, @NonNull String coreNetworkId,
+        @NonNull String sdkNetworkUrl,
+        @NonNull String sdkNetworkId, @NonNull String issuer, @NonNull String migrationServiceUrl,
+        @Nullable String migrationServiceBatchUrl, @Nullable OkHttpClient okHttpClient) {
         this.coreNetworkUrl = coreNetworkUrl;
         this.coreNetworkId = coreNetworkId;
         this.sdkNetworkUrl = sdkNetworkUrl;
         this.sdkNetworkId = sdkNetworkId;
         this.issuer = issuer;
         this.migrationServiceUrl = migrationServiceUrl;
+        this.migrationServiceBatchUrl = migrationServiceBatchUrl;
+        this.okHttpClient = okHttpClient;
     }
 
     public String getCoreNetworkUrl() {
@@ -45,4 +78,14 @@ public class MigrationNetworkInfo {
     public String getMigrationServiceUrl() {
         return migrationServiceUrl;
     }
+
+    @Nullable
+    public String getMigrationServiceBatchUrl() {
+        return migrationServiceBatchUrl;
+    }
+
+    @Nullable
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
 }
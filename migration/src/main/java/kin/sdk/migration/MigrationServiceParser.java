@@ -0,0 +1,180 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import okhttp3.ResponseBody;
+
+/**
+ * Streaming parser of the migration service responses.
+ * <p>Only the fields that are needed are read, straight from the body stream, without reading the whole body into
+ * memory first. The body is bounded so a huge or endless response fails fast instead of exhausting the memory.</p>
+ */
+final class MigrationServiceParser {
+
+	static final int MAX_ERROR_BODY_CHARS = 16 * 1024;
+	static final int MAX_BATCH_BODY_CHARS = 256 * 1024;
+
+	static final class Result {
+
+		@Nullable
+		final String code;
+		@Nullable
+		final String message;
+
+		Result(@Nullable String code, @Nullable String message) {
+			this.code = code;
+			this.message = message;
+		}
+	}
+
+	private MigrationServiceParser() {
+	}
+
+	/**
+	 * Parse an error in the form of {"code":"...","message":"..."}, reading only until both fields were found.
+	 */
+	@NonNull
+	static Result parseError(ResponseBody body) throws IOException {
+		JsonReader reader = newReader(body, MAX_ERROR_BODY_CHARS);
+		try {
+			String code = null;
+			String message = null;
+			reader.beginObject();
+			while (reader.hasNext() && (code == null || message == null)) {
+				String name = reader.nextName();
+				if ("code".equals(name)) {
+					code = nextStringOrNull(reader);
+				} else if ("message".equals(name)) {
+					message = nextStringOrNull(reader);
+				} else {
+					reader.skipValue();
+				}
+			}
+			return new Result(code, message);
+		} catch (IllegalStateException e) {
+			throw new IOException("Malformed migration error response", e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Parse a batch response in the form of {"results":[{"address":"...","code":"...","message":"..."}]}.
+	 *
+	 * @return the result of every address in the response.
+	 */
+	@NonNull
+	static Map<String, Result> parseBatchResults(ResponseBody body) throws IOException {
+		Map<String, Result> results = new HashMap<>();
+		JsonReader reader = newReader(body, MAX_BATCH_BODY_CHARS);
+		try {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (!"results".equals(reader.nextName())) {
+					reader.skipValue();
+					continue;
+				}
+				reader.beginArray();
+				while (reader.hasNext()) {
+					String address = null;
+					String code = null;
+					String message = null;
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String name = reader.nextName();
+						if ("address".equals(name)) {
+							address = nextStringOrNull(reader);
+						} else if ("code".equals(name)) {
+							code = nextStringOrNull(reader);
+						} else if ("message".equals(name)) {
+							message = nextStringOrNull(reader);
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+					if (address != null) {
+						results.put(address, new Result(code, message));
+					}
+				}
+				reader.endArray();
+			}
+			reader.endObject();
+		} catch (IllegalStateException e) {
+			throw new IOException("Malformed batch migration response", e);
+		} finally {
+			reader.close();
+		}
+		return results;
+	}
+
+	private static JsonReader newReader(ResponseBody body, int maxChars) throws IOException {
+		long contentLength = body.contentLength();
+		if (contentLength > maxChars) {
+			throw new IOException("Response body is too large, length = " + contentLength);
+		}
+		return new JsonReader(new BoundedReader(body.charStream(), maxChars));
+	}
+
+	@Nullable
+	private static String nextStringOrNull(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		// numbers are read as strings as well.
+		return reader.nextString();
+	}
+
+	/**
+	 * Fails the read once more than the maximum number of chars were read.
+	 */
+	private static final class BoundedReader extends FilterReader {
+
+		private long remaining;
+
+		BoundedReader(Reader in, int maxChars) {
+			super(in);
+			this.remaining = maxChars;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c = super.read();
+			if (c != -1) {
+				consume(1);
+			}
+			return c;
+		}
+
+		@Override
+		public int read(@NonNull char[] buffer, int offset, int length) throws IOException {
+			int count = super.read(buffer, offset, (int) Math.min(length, remaining + 1));
+			if (count > 0) {
+				consume(count);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(Math.min(n, remaining + 1));
+			consume(skipped);
+			return skipped;
+		}
+
+		private void consume(long count) throws IOException {
+			remaining -= count;
+			if (remaining < 0) {
+				throw new IOException("Response body is larger than the maximum allowed size");
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The migration state of a single account as it is persisted by a {@link MigrationStateStore}.
+ */
+public final class MigrationState {
+
+	private final String publicAddress;
+	private final boolean burned;
+	private final boolean migrated;
+	@Nullable
+	private final String burnTransactionId;
+	private final long timestamp;
+
+	/**
+	 * @param publicAddress the address of the account.
+	 * @param burned true if the account was burned on the old kin blockchain.
+	 * @param migrated true if the account was migrated to the new kin blockchain.
+	 * @param burnTransactionId the id of the burn transaction, if it was sent by this module.
+	 * @param timestamp the time of the last change, in milliseconds since the epoch.
+	 */
+	public MigrationState(@NonNull String publicAddress, boolean burned, boolean migrated,
+		@Nullable String burnTransactionId, long timestamp) {
+		this.publicAddress = publicAddress;
+		this.burned = burned;
+		this.migrated = migrated;
+		this.burnTransactionId = burnTransactionId;
+		this.timestamp = timestamp;
+	}
+
+	@NonNull
+	public String getPublicAddress() {
+		return publicAddress;
+	}
+
+	public boolean isBurned() {
+		return burned;
+	}
+
+	public boolean isMigrated() {
+		return migrated;
+	}
+
+	@Nullable
+	public String getBurnTransactionId() {
+		return burnTransactionId;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		MigrationState that = (MigrationState) o;
+		return burned == that.burned && migrated == that.migrated && timestamp == that.timestamp
+			&& publicAddress.equals(that.publicAddress)
+			&& (burnTransactionId != null ? burnTransactionId.equals(that.burnTransactionId)
+			: that.burnTransactionId == null);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = publicAddress.hashCode();
+		result = 31 * result + (burned ? 1 : 0);
+		result = 31 * result + (migrated ? 1 : 0);
+		result = 31 * result + (burnTransactionId != null ? burnTransactionId.hashCode() : 0);
+		result = 31 * result + (int) (timestamp ^ (timestamp >>> 32));
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "MigrationState{" +
+			"publicAddress='" + publicAddress + '\'' +
+			", burned=" + burned +
+			", migrated=" + migrated +
+			", burnTransactionId='" + burnTransactionId + '\'' +
+			", timestamp=" + timestamp +
+			'}';
+	}
+}
@@ -0,0 +1,146 @@
+package kin.sdk.migration;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import kin.sdk.Logger;
+
+/**
+ * Process wide in memory cache of the migration state, in front of a {@link MigrationStateStore}.
+ * <p>The store is read once, lazily, and then every lookup is served from memory. Updates are written through to
+ * the store. All the {@link MigrationManager} instances which use the same store share the same cache.</p>
+ */
+final class MigrationStateCache {
+
+	private static final Map<MigrationStateStore, MigrationStateCache> caches = new IdentityHashMap<>();
+	private static volatile MigrationStateStore defaultStore;
+
+	private final MigrationStateStore store;
+	private final Map<String, MigrationState> states;
+	private volatile boolean loaded;
+
+	static MigrationStateStore getDefaultStore(@NonNull Context context) {
+		if (defaultStore == null) {
+			synchronized (MigrationStateCache.class) {
+				if (defaultStore == null) {
+					defaultStore = new FileMigrationStateStore(context);
+				}
+			}
+		}
+		return defaultStore;
+	}
+
+	static MigrationStateCache getInstance(@NonNull MigrationStateStore store) {
+		synchronized (caches) {
+			MigrationStateCache cache = caches.get(store);
+			if (cache == null) {
+				cache = new MigrationStateCache(store);
+				caches.put(store, cache);
+			}
+			return cache;
+		}
+	}
+
+	private MigrationStateCache(MigrationStateStore store) {
+		this.store = store;
+		this.states = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Load the persistent state in the background so the first lookup will not need to wait for the disk.
+	 */
+	void warmUp(Executor executor) {
+		if (!loaded) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					ensureLoaded();
+				}
+			});
+		}
+	}
+
+	@Nullable
+	MigrationState getState(String publicAddress) {
+		if (TextUtils.isEmpty(publicAddress)) {
+			return null;
+		}
+		ensureLoaded();
+		return states.get(publicAddress);
+	}
+
+	boolean isMigrated(String publicAddress) {
+		MigrationState state = getState(publicAddress);
+		return state != null && state.isMigrated();
+	}
+
+	/**
+	 * Checkpoint that the account is burned, the state is durable once this method returns(unless the store failed).
+	 *
+	 * @param burnTransactionId the id of the burn transaction, null if the account was found already burned.
+	 */
+	void setBurned(@NonNull String publicAddress, @Nullable String burnTransactionId) {
+		MigrationState state = getState(publicAddress);
+		if (state == null || !state.isBurned()) {
+			put(new MigrationState(publicAddress, true, state != null && state.isMigrated(), burnTransactionId,
+				System.currentTimeMillis()));
+		}
+	}
+
+	void setMigrated(@NonNull String publicAddress) {
+		MigrationState state = getState(publicAddress);
+		if (state == null || !state.isMigrated()) {
+			put(new MigrationState(publicAddress, true, true, state != null ? state.getBurnTransactionId() : null,
+				System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Remove all the states, from memory and from the store.
+	 */
+	void clear() {
+		synchronized (this) {
+			states.clear();
+			loaded = true;
+			try {
+				store.clear();
+			} catch (IOException e) {
+				Logger.e("failed to clear the migration state store", e);
+			}
+		}
+	}
+
+	private void put(MigrationState state) {
+		synchronized (this) {
+			states.put(state.getPublicAddress(), state);
+			try {
+				store.save(state);
+			} catch (IOException e) {
+				// the state is still kept in memory for this process.
+				Logger.e("failed to save the migration state", e);
+			}
+		}
+	}
+
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		synchronized (this) {
+			if (!loaded) {
+				try {
+					states.putAll(store.loadAll());
+				} catch (IOException e) {
+					Logger.e("failed to load the migration state store", e);
+				}
+				loaded = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Persistent storage of the per address migration state.
+ * <p>The store is read once per process, lookups are then served from memory, so {@link #loadAll()} can be slow
+ * but {@link #save(MigrationState)} should be cheap as it is called for every state change. Implementations must be
+ * thread safe.</p>
+ *
+ * @see FileMigrationStateStore
+ */
+public interface MigrationStateStore {
+
+	/**
+	 * @return the latest state of every address in the store, keyed by the public address.
+	 */
+	@NonNull
+	Map<String, MigrationState> loadAll() throws IOException;
+
+	/**
+	 * Persist a state, replacing the previous state of the same address.
+	 */
+	void save(@NonNull MigrationState state) throws IOException;
+
+	/**
+	 * Remove all the states from the store.
+	 */
+	void clear() throws IOException;
+}
@@ -0,0 +1,52 @@
+package kin.sdk.migration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the retries to a ratio of the requests, every request deposits a fraction of a token and every retry
+ * withdraws a whole one. When a server is failing most of the requests the budget runs dry, and the clients stop
+ * multiplying the load on it.
+ */
+final class RetryBudget {
+
+	private static final int TOKEN = 1000; // tokens are kept in thousandths so the counter can be an int.
+
+	private final int maxTokens;
+	private final int depositPerRequest;
+	private final AtomicInteger tokens;
+
+	/**
+	 * @param maxTokens the maximum number of retries that can be accumulated.
+	 * @param retryRatio the fraction of the requests that can be retried, e.g. 0.2 allows one retry per 5 requests.
+	 */
+	RetryBudget(int maxTokens, float retryRatio) {
+		this.maxTokens = maxTokens * TOKEN;
+		this.depositPerRequest = (int) (retryRatio * TOKEN);
+		this.tokens = new AtomicInteger(this.maxTokens);
+	}
+
+	void onRequest() {
+		while (true) {
+			int current = tokens.get();
+			int updated = Math.min(maxTokens, current + depositPerRequest);
+			if (current == updated || tokens.compareAndSet(current, updated)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return true if a retry can be made, in that case a token was withdrawn from the budget.
+	 */
+	boolean tryAcquireRetry() {
+		while (true) {
+			int current = tokens.get();
+			if (current < TOKEN) {
+				return false;
+			}
+			if (tokens.compareAndSet(current, current - TOKEN)) {
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package kin.sdk.migration;
+
+import java.io.IOException;
+import org.stellar.sdk.responses.HttpResponseException;
+
+/**
+ * Decides which failures are transient and therefore worth a retry.
+ */
+class RetryClassifier {
+
+	private static final int TOO_MANY_REQUESTS = 429;
+	private static final int NOT_IMPLEMENTED = 501;
+	private static final int MAX_CAUSE_DEPTH = 8;
+
+	/**
+	 * @return true for server errors and for "too many requests". "not implemented" won't change on a retry, it is the
+	 * answer of a server that doesn't support the request.
+	 */
+	boolean isRetryable(int statusCode) {
+		return (statusCode >= 500 && statusCode != NOT_IMPLEMENTED) || statusCode == TOO_MANY_REQUESTS;
+	}
+
+	/**
+	 * @return true if the error, or one of its causes, is a network error or an http error with a retryable status
+	 * code.
+	 */
+	boolean isRetryable(Throwable error) {
+		Throwable current = error;
+		for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+			if (current instanceof IOException) {
+				return true;
+			}
+			if (current instanceof HttpResponseException) {
+				return isRetryable(((HttpResponseException) current).getStatusCode());
+			}
+			current = current.getCause();
+		}
+		return false;
+	}
+}
@@ -0,0 +1,92 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import kin.sdk.Logger;
+import kin.sdk.migration.RetryPolicy.RetryListener;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries failed requests according to a {@link RetryPolicy}.
+ * <p>The interceptor is shared by all the calls of the client, so it must not hold any per call state. The per call
+ * state is attached to the request as a {@link Tag}.</p>
+ */
+class RetryInterceptor implements Interceptor {
+
+	/**
+	 * The retry state of a single request.
+	 */
+	static class Tag {
+
+		private final RetryListener listener;
+		private final MigrationHandle handle;
+
+		/**
+		 * @param listener gets the retry events of the request.
+		 * @param handle the migration the request belongs to, if any.
+		 */
+		Tag(@Nullable RetryListener listener, @Nullable MigrationHandle handle) {
+			this.listener = listener;
+			this.handle = handle;
+		}
+	}
+
+	static final String MIGRATION_REQUEST_OPERATION = "migrationRequest";
+	private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+	private final RetryPolicy retryPolicy;
+
+	RetryInterceptor(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	@Override
+	public Response intercept(@NonNull Chain chain) throws IOException {
+		Request request = chain.request();
+		String host = request.url().host();
+		Object tag = request.tag();
+		RetryPolicy.Attempts attempts = tag instanceof Tag ?
+			retryPolicy.newAttempts(MIGRATION_REQUEST_OPERATION, host, ((Tag) tag).listener, ((Tag) tag).handle) :
+			retryPolicy.newAttempts(MIGRATION_REQUEST_OPERATION, host, null, null);
+		while (true) {
+			if (!attempts.begin()) {
+				throw new IOException("Too many recent failures of " + host + ", request was not sent");
+			}
+			Response response;
+			try {
+				response = chain.proceed(request);
+			} catch (IOException e) {
+				long delay = attempts.nextRetryDelayMillis(e);
+				if (delay == RetryPolicy.NO_RETRY) {
+					throw e;
+				}
+				await(attempts, delay);
+				continue;
+			} catch (RuntimeException e) {
+				attempts.onFailure();
+				throw e;
+			}
+			MigrationMetrics.getInstance().recordHttpStatus(response.code());
+			long delay = attempts.nextRetryDelayMillis(response.code(), response.header(RETRY_AFTER_HEADER));
+			if (delay == RetryPolicy.NO_RETRY) {
+				return response;
+			}
+			if (Logger.isLoggable(Logger.Level.DEBUG)) {
+				Logger.d("RetryInterceptor, response code {}, retrying in {}ms", response.code(), delay);
+			}
+			// the failed response is discarded, release its connection before the next attempt.
+			response.close();
+			await(attempts, delay);
+		}
+	}
+
+	private static void await(RetryPolicy.Attempts attempts, long delay) throws InterruptedIOException {
+		if (!attempts.awaitRetry(delay)) {
+			throw new InterruptedIOException("Interrupted while waiting to retry the request");
+		}
+	}
+}
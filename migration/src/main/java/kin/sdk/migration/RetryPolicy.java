@@ -0,0 +1,274 @@
+package kin.sdk.migration;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import kin.sdk.Logger;
+
+/**
+ * Decides if and when a failed call should be retried, used by all the network calls of the burn and migrate process.
+ * <p>Retries are delayed with an exponential backoff with jitter, or by the server's Retry-After header when there is
+ * one, and all the attempts of a call must fit in a total deadline. In addition every target(e.g. a host) gets a retry
+ * budget and a circuit breaker, both shared by all the calls to that target, so when a server is in trouble the
+ * clients back off instead of flooding it with retries.</p>
+ * <p>A call is tracked by {@link Attempts}, typically in a loop:</p>
+ * <pre>
+ * Attempts attempts = retryPolicy.newAttempts("operation", target, listener, handle);
+ * while (true) {
+ *     attempts.begin();
+ *     try {
+ *         result = call();
+ *         attempts.onSuccess();
+ *         return result;
+ *     } catch (RuntimeException e) {
+ *         attempts.onFailure();
+ *         throw e;
+ *     } catch (Exception e) {
+ *         long delay = attempts.nextRetryDelayMillis(e);
+ *         if (delay == NO_RETRY || !attempts.awaitRetry(delay)) {
+ *             throw e;
+ *         }
+ *     }
+ * }
+ * </pre>
+ */
+final class RetryPolicy {
+
+	static final long NO_RETRY = -1;
+
+	private static final int RETRY_BUDGET_MAX_TOKENS = 10;
+	private static final float RETRY_BUDGET_RATIO = 0.2f;
+	private static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+	private static final long CIRCUIT_BREAKER_OPEN_DURATION_MILLIS = 30000;
+	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+	interface RetryListener {
+
+		/**
+		 * Called before waiting for a retry.
+		 *
+		 * @param operation the name of the retried operation.
+		 * @param retryNumber the one based number of the retry.
+		 * @param delayMillis the time until the retry.
+		 * @param reason a short description of the failure.
+		 */
+		void onRetry(String operation, int retryNumber, long delayMillis, String reason);
+	}
+
+	private final int maxRetries;
+	private final ExponentialBackoff backoff;
+	private final long deadlineNanos;
+	private final RetryClassifier classifier;
+	private final ConcurrentMap<String, TargetState> targetStates;
+
+	/**
+	 * @param maxRetries the maximum number of retries for a single call.
+	 * @param backoff the delays between the retries, its max delay also caps the Retry-After values that are honored.
+	 * @param deadlineMillis the maximum total time of a call, from its first attempt, that a retry can still start in.
+	 * @param classifier decides which failures are retryable.
+	 */
+	RetryPolicy(int maxRetries, ExponentialBackoff backoff, long deadlineMillis, RetryClassifier classifier) {
+		this.maxRetries = maxRetries;
+		this.backoff = backoff;
+		this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+		this.classifier = classifier;
+		this.targetStates = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Start tracking a new call.
+	 *
+	 * @param operation the name of the operation, used for logs and events.
+	 * @param target the target of the call, calls to the same target share the retry budget and circuit breaker.
+	 * @param listener an optional listener for the retries of this call.
+	 * @param handle the migration this call belongs to, if any. No retry is made once it is stopped or when its
+	 * deadline would pass before the retry.
+	 */
+	@NonNull
+	Attempts newAttempts(String operation, String target, @Nullable RetryListener listener,
+		@Nullable MigrationHandle handle) {
+		return new Attempts(operation, getTargetState(target), listener, handle);
+	}
+
+	/**
+	 * @return the delay that the Retry-After header value asks for, either delta seconds or an http date, or zero if
+	 * it couldn't be parsed.
+	 */
+	static long parseRetryAfterMillis(String retryAfter) {
+		String value = retryAfter.trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch (NumberFormatException e) {
+			try {
+				Date date = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(value);
+				return Math.max(0, date.getTime() - System.currentTimeMillis());
+			} catch (ParseException ignored) {
+				return 0;
+			}
+		}
+	}
+
+	private TargetState getTargetState(String target) {
+		TargetState targetState = targetStates.get(target);
+		if (targetState == null) {
+			TargetState newTargetState = new TargetState();
+			targetState = targetStates.putIfAbsent(target, newTargetState);
+			if (targetState == null) {
+				targetState = newTargetState;
+			}
+		}
+		return targetState;
+	}
+
+	/**
+	 * The attempts of a single call, not thread safe.
+	 */
+	final class Attempts {
+
+		private final String operation;
+		private final TargetState targetState;
+		private final RetryListener listener;
+		private final MigrationHandle handle;
+		private final long startNanos;
+		private int retries;
+		private boolean isOutcomePending;
+
+		private Attempts(String operation, TargetState targetState, @Nullable RetryListener listener,
+			@Nullable MigrationHandle handle) {
+			this.operation = operation;
+			this.targetState = targetState;
+			this.listener = listener;
+			this.handle = handle;
+			this.startNanos = System.nanoTime();
+		}
+
+		/**
+		 * Must be called before every attempt. The outcome of an attempt that was allowed must then be reported
+		 * exactly once, by {@link #onSuccess()}, {@link #onFailure()} or one of the nextRetryDelayMillis methods,
+		 * otherwise a trial request of the circuit breaker would never complete.
+		 *
+		 * @return true if the attempt can be made, false if the circuit breaker of the target is open.
+		 */
+		boolean begin() {
+			if (retries == 0) {
+				targetState.retryBudget.onRequest();
+			}
+			if (!targetState.circuitBreaker.allowRequest()) {
+				return false;
+			}
+			isOutcomePending = true;
+			return true;
+		}
+
+		/**
+		 * Report that the attempt got an answer, even if that answer is a non retryable error.
+		 */
+		void onSuccess() {
+			if (isOutcomePending) {
+				isOutcomePending = false;
+				targetState.circuitBreaker.onSuccess();
+			}
+		}
+
+		/**
+		 * Report that the attempt failed without an answer, e.g. with an unexpected exception.
+		 */
+		void onFailure() {
+			if (isOutcomePending) {
+				isOutcomePending = false;
+				targetState.circuitBreaker.onFailure();
+			}
+		}
+
+		/**
+		 * @param error the failure of the last attempt.
+		 * @return the delay before the next attempt, or {@link #NO_RETRY} if the error is not retryable or there are
+		 * no retries left.
+		 */
+		long nextRetryDelayMillis(Throwable error) {
+			if (!classifier.isRetryable(error)) {
+				// a non retryable error is an answer of the target(e.g. a 4xx or a failed transaction).
+				onSuccess();
+				return NO_RETRY;
+			}
+			onFailure();
+			return nextRetryDelayMillis(0, error.getClass().getSimpleName());
+		}
+
+		/**
+		 * @param statusCode the http status code of the last attempt.
+		 * @param retryAfter the value of the Retry-After header of that response, if any.
+		 * @return the delay before the next attempt, or {@link #NO_RETRY} if the status is not retryable or there are
+		 * no retries left.
+		 */
+		long nextRetryDelayMillis(int statusCode, @Nullable String retryAfter) {
+			if (!classifier.isRetryable(statusCode)) {
+				// the target did answer, so this is a success as far as the circuit breaker is concerned.
+				onSuccess();
+				return NO_RETRY;
+			}
+			onFailure();
+			long retryAfterMillis = 0;
+			if (retryAfter != null) {
+				retryAfterMillis = parseRetryAfterMillis(retryAfter);
+				if (retryAfterMillis > backoff.getMaxDelayMillis()) {
+					Logger.d("{}: Retry-After is longer than the max delay, not retrying", operation);
+					return NO_RETRY;
+				}
+			}
+			return nextRetryDelayMillis(retryAfterMillis, "status code " + statusCode);
+		}
+
+		/**
+		 * Wait before the next attempt.
+		 *
+		 * @return true if the next attempt can be made, false if the thread was interrupted while waiting.
+		 */
+		boolean awaitRetry(long delayMillis) {
+			try {
+				Thread.sleep(delayMillis);
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		private long nextRetryDelayMillis(long minDelayMillis, String reason) {
+			if (retries >= maxRetries) {
+				return NO_RETRY;
+			}
+			long delay = Math.max(minDelayMillis, backoff.delayMillis(retries));
+			if (System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delay) > deadlineNanos) {
+				Logger.d("{}: deadline would pass before the next retry, not retrying", operation);
+				return NO_RETRY;
+			}
+			if (handle != null && (handle.shouldStop() || delay >= handle.remainingMillis())) {
+				Logger.d("{}: migration is stopped or its deadline would pass, not retrying", operation);
+				return NO_RETRY;
+			}
+			if (!targetState.retryBudget.tryAcquireRetry()) {
+				Logger.d("{}: retry budget is exhausted, not retrying", operation);
+				return NO_RETRY;
+			}
+			retries++;
+			if (listener != null) {
+				listener.onRetry(operation, retries, delay, reason);
+			}
+			return delay;
+		}
+	}
+
+	private static class TargetState {
+
+		private final RetryBudget retryBudget = new RetryBudget(RETRY_BUDGET_MAX_TOKENS, RETRY_BUDGET_RATIO);
+		private final CircuitBreaker circuitBreaker = new CircuitBreaker(CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+			CIRCUIT_BREAKER_OPEN_DURATION_MILLIS);
+	}
+}
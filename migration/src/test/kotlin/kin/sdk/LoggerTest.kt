@@ -0,0 +1,80 @@
+package kin.sdk
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+
+class LoggerTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val sink = InMemoryLogSink(10)
+
+    @Before
+    fun setUp() {
+        Logger.setSink(sink)
+        Logger.enable(true)
+    }
+
+    @After
+    fun tearDown() {
+        Logger.enable(false)
+        Logger.setLevel(Logger.Level.DEBUG)
+        Logger.setSink(LogcatSink())
+    }
+
+    @Test
+    fun d_parameterized_placeholdersReplaced() {
+        Logger.d("a = {}, b = {}, c = {}", 1, "two", null)
+
+        assertThat(sink.entries.map { it.message }, equalTo(listOf("a = 1, b = two, c = null")))
+    }
+
+    @Test
+    fun format_missingPlaceholders_extraArgsIgnored() {
+        assertThat(Logger.format("no placeholders", "x", null, null, 1), equalTo("no placeholders"))
+        assertThat(Logger.format("{} and {}", "x", null, null, 1), equalTo("x and {}"))
+    }
+
+    @Test
+    fun d_belowLevel_notWritten() {
+        Logger.setLevel(Logger.Level.WARN)
+
+        Logger.d("debug {}", 1)
+        Logger.w("warn {}", 2)
+        Logger.e("error {}", 3, RuntimeException())
+
+        assertThat(sink.entries.map { it.level }, equalTo(listOf(Logger.Level.WARN, Logger.Level.ERROR)))
+    }
+
+    @Test
+    fun d_disabled_notWritten() {
+        Logger.enable(false)
+
+        Logger.d("debug {}", object : Any() {
+            override fun toString(): String = throw AssertionError("message was built while logging is disabled")
+        })
+
+        assertThat(sink.entries.size, equalTo(0))
+    }
+
+    @Test
+    fun write_fileRingBuffer_rotatedWhenFull() {
+        val file = tempFolder.newFile("migration.log")
+        val fileSink = FileRingBufferLogSink(file, 64)
+
+        for (i in 1..4) {
+            fileSink.write(Logger.Level.DEBUG, "tag", "message number $i", null)
+        }
+
+        assertThat(file.readText().contains("message number 4"), equalTo(true))
+        assertThat(fileSink.rotatedFile.readText().contains("message number 3"), equalTo(true))
+        assertThat(file.readText().contains("message number 1"), equalTo(false))
+    }
+}
@@ -12,6 +12,9 @@ import org.mockito.ArgumentMatchers
 import org.mockito.Mock
 import org.mockito.Mockito.*
 import org.mockito.MockitoAnnotations
+import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.FutureTask
 
 
 class AccountBurnerTest {
@@ -64,5 +67,45 @@ class AccountBurnerTest {
         assertThat(burnReason, equalTo(IMigrationEventsListener.BurnReason.ALREADY_BURNED))
     }
 
+    @Test
+    fun startBurnAccountProcess_speculativeBurnStateAlreadyBurned_noExtraCheck() {
+        // Given
+        `when`(kinAccount.publicAddress).thenReturn("public_address")
+        val speculativeBurnState = FutureTask(Callable { IMigrationEventsListener.CheckBurnReason.ALREADY_BURNED })
+
+        // When
+        val accountBurner = AccountBurner(eventsNotifier)
+        val burnReason = accountBurner.start(kinAccount, speculativeBurnState)
+
+        // Then
+        verify(kinAccount, times(0)).isAccountBurned
+        verify(kinAccount, times(0)).sendBurnTransactionSync(ArgumentMatchers.anyString())
+        assertThat(burnReason, equalTo(IMigrationEventsListener.BurnReason.ALREADY_BURNED))
+    }
+
+    @Test
+    fun startBurnAccountProcess_burnCheckpointed_resumeWithoutNetwork() {
+        // Given
+        `when`(kinAccount.isAccountBurned).thenReturn(false)
+        `when`(kinAccount.sendBurnTransactionSync(ArgumentMatchers.anyString())).thenReturn(ITransactionId { "id" })
+        `when`(kinAccount.publicAddress).thenReturn("public_address")
+        val stateFile = File.createTempFile("migration_state", ".log")
+        stateFile.delete()
+        AccountBurner(eventsNotifier, null, MigrationStateCache.getInstance(FileMigrationStateStore(stateFile)))
+            .start(kinAccount)
+        reset(kinAccount)
+        `when`(kinAccount.publicAddress).thenReturn("public_address")
+
+        // When, a new process resumes the migration
+        val checkpoints = MigrationStateCache.getInstance(FileMigrationStateStore(stateFile))
+        val burnReason = AccountBurner(eventsNotifier, null, checkpoints).start(kinAccount)
+
+        // Then
+        verify(kinAccount, times(0)).isAccountBurned
+        verify(kinAccount, times(0)).sendBurnTransactionSync(ArgumentMatchers.anyString())
+        assertThat(burnReason, equalTo(IMigrationEventsListener.BurnReason.ALREADY_BURNED))
+        assertThat(checkpoints.getState("public_address")?.burnTransactionId, equalTo("id"))
+        stateFile.delete()
+    }
 
-}
\ No newline at end of file
+}
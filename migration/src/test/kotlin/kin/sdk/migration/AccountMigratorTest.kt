@@ -0,0 +1,122 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.exception.MigrationFailedException
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
+import org.mockito.MockitoAnnotations
+
+
+class AccountMigratorTest {
+
+    @Mock
+    private lateinit var eventsNotifier: MigrationEventsNotifier
+
+    private lateinit var server: MockWebServer
+
+    @Before
+    fun setUp() {
+        MockitoAnnotations.initMocks(this)
+        server = MockWebServer()
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun newAccountMigrator(batchPath: String): AccountMigrator {
+        val networkInfo = MigrationNetworkInfo("core_url", "core_id", "sdk_url", "sdk_id", "issuer",
+                server.url("/migrate?address=").toString(), server.url(batchPath).toString(), null)
+        return AccountMigrator(eventsNotifier, networkInfo, AccountMigrator.createHttpClient(null), null)
+    }
+
+    @Test
+    fun migrateToNewKin_batchSupported_singleRequestWithPerAddressResults() {
+        // Given
+        server.enqueue(MockResponse().setResponseCode(200).setBody(
+                "{\"results\":[{\"address\":\"GA1\",\"code\":\"200\"},{\"address\":\"GA2\",\"code\":\"4002\"}," +
+                        "{\"address\":\"GA3\",\"code\":\"4001\",\"message\":\"account not burned\"}]}"))
+
+        // When
+        val failures = newAccountMigrator("/migrate_batch").migrateToNewKin(listOf("GA1", "GA2", "GA3"))
+
+        // Then
+        assertThat(server.requestCount, equalTo(1))
+        assertThat(server.takeRequest().body.readUtf8(), equalTo("{\"addresses\":[\"GA1\",\"GA2\",\"GA3\"]}"))
+        assertThat(failures.keys, contains("GA3"))
+        assertThat(failures["GA3"], instanceOf(MigrationFailedException::class.java))
+    }
+
+    @Test
+    fun migrateToNewKin_batchNotSupported_fallbackToSingleRequests() {
+        // Given
+        server.enqueue(MockResponse().setResponseCode(404))
+        server.enqueue(MockResponse().setResponseCode(200))
+        server.enqueue(MockResponse().setResponseCode(400).setBody("{\"code\":\"4002\",\"message\":\"migrated\"}"))
+
+        // When
+        val failures = newAccountMigrator("/unsupported_batch").migrateToNewKin(listOf("GA1", "GA2"))
+
+        // Then
+        assertThat(server.requestCount, equalTo(3))
+        assertThat(server.takeRequest().path, equalTo("/unsupported_batch"))
+        assertThat(server.takeRequest().path, equalTo("/migrate?address=GA1"))
+        assertThat(server.takeRequest().path, equalTo("/migrate?address=GA2"))
+        assertThat(failures.size, equalTo(0))
+    }
+
+    @Test
+    fun migrateToNewKin_batchNotImplemented_noRetryAndFallbackToSingleRequest() {
+        // Given
+        server.enqueue(MockResponse().setResponseCode(501))
+        server.enqueue(MockResponse().setResponseCode(200))
+
+        // When
+        val failures = newAccountMigrator("/not_implemented_batch").migrateToNewKin(listOf("GA1"))
+
+        // Then
+        assertThat(server.requestCount, equalTo(2))
+        assertThat(server.takeRequest().path, equalTo("/not_implemented_batch"))
+        assertThat(server.takeRequest().path, equalTo("/migrate?address=GA1"))
+        assertThat(failures.size, equalTo(0))
+    }
+
+    @Test
+    fun migrateToNewKin_batchResultWithoutCode_failure() {
+        // Given
+        server.enqueue(MockResponse().setResponseCode(200).setBody(
+                "{\"results\":[{\"address\":\"GA1\",\"code\":\"200\"},{\"address\":\"GA2\"}]}"))
+
+        // When
+        val failures = newAccountMigrator("/migrate_batch").migrateToNewKin(listOf("GA1", "GA2"))
+
+        // Then
+        assertThat(failures.keys, contains("GA2"))
+    }
+
+    @Test
+    fun migrateToNewKin_addressMissingFromBatch_startedOnce() {
+        // Given
+        server.enqueue(MockResponse().setResponseCode(200).setBody(
+                "{\"results\":[{\"address\":\"GA1\",\"code\":\"200\"}]}"))
+        server.enqueue(MockResponse().setResponseCode(200))
+
+        // When
+        val failures = newAccountMigrator("/migrate_batch").migrateToNewKin(listOf("GA1", "GA2"))
+
+        // Then
+        assertThat(server.requestCount, equalTo(2))
+        assertThat(failures.size, equalTo(0))
+        verify(eventsNotifier, times(1)).onRequestAccountMigrationStarted("GA1")
+        verify(eventsNotifier, times(1)).onRequestAccountMigrationStarted("GA2")
+    }
+}
@@ -0,0 +1,154 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.AsyncEventsDispatcher.OverflowPolicy
+import kin.sdk.migration.bi.IMigrationEventsListener
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.mockito.InOrder
+import org.mockito.Mock
+import org.mockito.Mockito.*
+import org.mockito.MockitoAnnotations
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+
+class AsyncEventsDispatcherTest {
+
+    @Mock
+    private lateinit var listener: IMigrationEventsListener
+
+    private val listenerEntered = CountDownLatch(1)
+    private val releaseListener = CountDownLatch(1)
+    private var dispatcher: AsyncEventsDispatcher? = null
+
+    @Before
+    fun setUp() {
+        MockitoAnnotations.initMocks(this)
+        // the first event blocks the dispatcher thread until the test releases it.
+        doAnswer {
+            listenerEntered.countDown()
+            releaseListener.await(5, TimeUnit.SECONDS)
+            null
+        }.`when`(listener).onMethodStarted()
+    }
+
+    @After
+    fun tearDown() {
+        releaseListener.countDown()
+        dispatcher?.shutdown()
+    }
+
+    @Test
+    fun post_dropOldest_bufferFull_oldestEventsDropped() {
+        // Given
+        val dispatcher = startBlocked(OverflowPolicy.DROP_OLDEST)
+
+        // When
+        dispatcher.onBurnStarted("1")
+        dispatcher.onBurnStarted("2")
+        dispatcher.onBurnStarted("3")
+        dispatcher.onBurnStarted("4")
+        releaseListener.countDown()
+
+        // Then
+        verify(listener, timeout(1000)).onBurnStarted("4")
+        verify(listener).onBurnStarted("3")
+        verify(listener, never()).onBurnStarted("1")
+        verify(listener, never()).onBurnStarted("2")
+        assertThat(dispatcher.droppedCount, equalTo(2L))
+    }
+
+    @Test
+    fun post_coalesce_bufferFull_latestEventOfEveryAccountDelivered() {
+        // Given
+        val dispatcher = startBlocked(OverflowPolicy.COALESCE)
+
+        // When
+        dispatcher.onCheckBurnStarted("1")
+        dispatcher.onCheckBurnStarted("2")
+        dispatcher.onBurnStarted("1")
+        dispatcher.onBurnStarted("2")
+        dispatcher.onRequestAccountMigrationStarted("2")
+        releaseListener.countDown()
+
+        // Then
+        verify(listener, timeout(1000)).onRequestAccountMigrationStarted("2")
+        verify(listener, timeout(1000)).onBurnStarted("1")
+        verify(listener, never()).onBurnStarted("2")
+        assertThat(dispatcher.coalescedCount, equalTo(1L))
+        assertThat(dispatcher.droppedCount, equalTo(0L))
+    }
+
+    @Test
+    fun post_coalesce_bufferFull_keptEventsDeliveredInPostOrder() {
+        // Given
+        val dispatcher = startBlocked(OverflowPolicy.COALESCE)
+        dispatcher.onCheckBurnStarted("1")
+        dispatcher.onCheckBurnStarted("2")
+
+        // When
+        dispatcher.onBurnStarted("9")
+        dispatcher.onCallbackStart()
+        dispatcher.onBurnStarted("5")
+        releaseListener.countDown()
+
+        // Then
+        val inOrder: InOrder = inOrder(listener)
+        inOrder.verify(listener, timeout(1000)).onCheckBurnStarted("1")
+        inOrder.verify(listener, timeout(1000)).onCheckBurnStarted("2")
+        inOrder.verify(listener, timeout(1000)).onBurnStarted("9")
+        inOrder.verify(listener, timeout(1000)).onCallbackStart()
+        inOrder.verify(listener, timeout(1000)).onBurnStarted("5")
+    }
+
+    @Test
+    fun post_block_bufferFull_allEventsDeliveredInOrder() {
+        // Given
+        val dispatcher = startBlocked(OverflowPolicy.BLOCK)
+        val poster = Thread {
+            for (i in 1..10) {
+                dispatcher.onBurnStarted(i.toString())
+            }
+        }
+
+        // When
+        poster.start()
+        releaseListener.countDown()
+        poster.join(5000)
+
+        // Then
+        val inOrder: InOrder = inOrder(listener)
+        for (i in 1..10) {
+            inOrder.verify(listener, timeout(1000)).onBurnStarted(i.toString())
+        }
+        assertThat(dispatcher.droppedCount, equalTo(0L))
+    }
+
+    @Test
+    fun shutdown_pendingEventsDelivered_laterEventsDropped() {
+        // Given
+        val dispatcher = startBlocked(OverflowPolicy.BLOCK)
+        dispatcher.onBurnStarted("1")
+
+        // When
+        dispatcher.shutdown()
+        dispatcher.onBurnStarted("2")
+        releaseListener.countDown()
+
+        // Then
+        verify(listener, timeout(1000)).onBurnStarted("1")
+        verify(listener, never()).onBurnStarted("2")
+        assertThat(dispatcher.droppedCount, equalTo(1L))
+    }
+
+    private fun startBlocked(overflowPolicy: OverflowPolicy): AsyncEventsDispatcher {
+        val dispatcher = AsyncEventsDispatcher(listener, 2, overflowPolicy)
+        this.dispatcher = dispatcher
+        dispatcher.onMethodStarted()
+        listenerEntered.await(5, TimeUnit.SECONDS)
+        return dispatcher
+    }
+}
@@ -0,0 +1,130 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.interfaces.IBalance
+import kin.sdk.migration.internal.BalanceCache
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.sameInstance
+import org.junit.Test
+import org.mockito.Mockito.mock
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+
+class BalanceCacheTest {
+
+    private val fetchedBalance = mock(IBalance::class.java)
+    private val updatedBalance = mock(IBalance::class.java)
+    private val fetchCount = AtomicInteger()
+
+    @Test
+    fun get_fresh_servedFromCache() {
+        val cache = BalanceCache(BalanceCache.Fetcher {
+            fetchCount.incrementAndGet()
+            fetchedBalance
+        }, 60_000)
+
+        cache.get()
+        val balance = cache.get()
+
+        assertThat(balance, sameInstance(fetchedBalance))
+        assertThat(fetchCount.get(), equalTo(1))
+    }
+
+    @Test
+    fun get_concurrentReaders_singleFetch() {
+        // Given
+        val release = CountDownLatch(1)
+        val cache = BalanceCache(BalanceCache.Fetcher {
+            fetchCount.incrementAndGet()
+            release.await(5, TimeUnit.SECONDS)
+            fetchedBalance
+        }, 60_000)
+        val executor = Executors.newFixedThreadPool(4)
+
+        // When
+        val futures = (1..4).map { executor.submit<IBalance> { cache.get() } }
+        Thread.sleep(100)
+        release.countDown()
+
+        // Then
+        futures.forEach { assertThat(it.get(5, TimeUnit.SECONDS), sameInstance(fetchedBalance)) }
+        assertThat(fetchCount.get(), equalTo(1))
+        executor.shutdown()
+    }
+
+    @Test
+    fun get_listenerUpdate_servedWithoutFetch() {
+        val cache = BalanceCache(BalanceCache.Fetcher {
+            fetchCount.incrementAndGet()
+            fetchedBalance
+        }, 60_000)
+
+        cache.onBalanceUpdated(updatedBalance)
+
+        assertThat(cache.get(), sameInstance(updatedBalance))
+        assertThat(fetchCount.get(), equalTo(0))
+    }
+
+    @Test
+    fun get_listenerUpdateDuringFetch_updateWins() {
+        lateinit var cache: BalanceCache
+        cache = BalanceCache(BalanceCache.Fetcher {
+            fetchCount.incrementAndGet()
+            cache.onBalanceUpdated(updatedBalance)
+            fetchedBalance
+        }, 60_000)
+
+        cache.get()
+
+        assertThat(cache.get(), sameInstance(updatedBalance))
+        assertThat(fetchCount.get(), equalTo(1))
+    }
+
+    @Test
+    fun get_invalidated_fetchedAgain() {
+        val cache = BalanceCache(BalanceCache.Fetcher {
+            fetchCount.incrementAndGet()
+            fetchedBalance
+        }, 60_000)
+        cache.get()
+
+        cache.invalidate()
+        cache.get()
+
+        assertThat(fetchCount.get(), equalTo(2))
+    }
+
+    @Test
+    fun get_invalidatedDuringFetch_doesNotJoinOlderFetch() {
+        // Given
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val cache = BalanceCache(BalanceCache.Fetcher {
+            if (fetchCount.incrementAndGet() == 1) {
+                started.countDown()
+                release.await(5, TimeUnit.SECONDS)
+                fetchedBalance
+            } else {
+                updatedBalance
+            }
+        }, 60_000)
+        val executor = Executors.newSingleThreadExecutor()
+        val olderFetch = executor.submit<IBalance> { cache.get() }
+        started.await(5, TimeUnit.SECONDS)
+
+        // When
+        cache.invalidate()
+        val balance = cache.get()
+        release.countDown()
+
+        // Then
+        assertThat(balance, sameInstance(updatedBalance))
+        assertThat(olderFetch.get(5, TimeUnit.SECONDS), sameInstance(fetchedBalance))
+        assertThat(cache.get(), sameInstance(updatedBalance))
+        assertThat(fetchCount.get(), equalTo(2))
+        executor.shutdown()
+    }
+}
@@ -0,0 +1,117 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.KinSdkVersion
+import kin.sdk.migration.common.exception.FailedToResolveSdkVersionException
+import kin.sdk.migration.common.interfaces.IKinVersionProvider
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.Mockito.*
+import org.mockito.MockitoAnnotations
+import java.util.concurrent.Executor
+
+
+class CachingKinVersionProviderTest {
+
+    @Mock
+    private lateinit var kinVersionProvider: IKinVersionProvider
+
+    private val pendingTasks = mutableListOf<Runnable>()
+    private val executor = Executor { pendingTasks.add(it) }
+
+    @Before
+    fun setUp() {
+        MockitoAnnotations.initMocks(this)
+    }
+
+    @Test
+    fun getKinSdkVersion_fresh_providerCalledOnce() {
+        // Given
+        `when`(kinVersionProvider.kinSdkVersion).thenReturn(KinSdkVersion.OLD_KIN_SDK)
+        val cachingProvider = CachingKinVersionProvider(null, kinVersionProvider, 60_000, 0, executor)
+
+        // When
+        cachingProvider.kinSdkVersion
+        val version = cachingProvider.kinSdkVersion
+
+        // Then
+        assertThat(version, equalTo(KinSdkVersion.OLD_KIN_SDK))
+        verify(kinVersionProvider, times(1)).kinSdkVersion
+    }
+
+    @Test
+    fun getKinSdkVersion_stale_returnsCachedAndRevalidatesInBackground() {
+        // Given
+        `when`(kinVersionProvider.kinSdkVersion).thenReturn(KinSdkVersion.OLD_KIN_SDK, KinSdkVersion.NEW_KIN_SDK)
+        val cachingProvider = CachingKinVersionProvider(null, kinVersionProvider, 0, 60_000, executor)
+        cachingProvider.kinSdkVersion
+
+        // When
+        val staleVersion = cachingProvider.kinSdkVersion
+        cachingProvider.kinSdkVersion
+        pendingTasks.forEach { it.run() }
+
+        // Then
+        assertThat(staleVersion, equalTo(KinSdkVersion.OLD_KIN_SDK))
+        assertThat(pendingTasks.size, equalTo(1))
+        assertThat(cachingProvider.kinSdkVersion, equalTo(KinSdkVersion.NEW_KIN_SDK))
+        verify(kinVersionProvider, times(2)).kinSdkVersion
+    }
+
+    @Test
+    fun getKinSdkVersion_newSdk_neverExpires() {
+        // Given
+        `when`(kinVersionProvider.kinSdkVersion).thenReturn(KinSdkVersion.NEW_KIN_SDK)
+        val cachingProvider = CachingKinVersionProvider(null, kinVersionProvider, 0, 0, executor)
+
+        // When
+        cachingProvider.kinSdkVersion
+        val version = cachingProvider.kinSdkVersion
+
+        // Then
+        assertThat(version, equalTo(KinSdkVersion.NEW_KIN_SDK))
+        verify(kinVersionProvider, times(1)).kinSdkVersion
+    }
+
+    @Test
+    fun getKinSdkVersion_expiredAndProviderFails_returnsLastVersion() {
+        // Given
+        `when`(kinVersionProvider.kinSdkVersion)
+            .thenReturn(KinSdkVersion.OLD_KIN_SDK)
+            .thenThrow(FailedToResolveSdkVersionException())
+        val cachingProvider = CachingKinVersionProvider(null, kinVersionProvider, 0, 0, executor)
+        cachingProvider.kinSdkVersion
+
+        // When
+        val version = cachingProvider.kinSdkVersion
+
+        // Then
+        assertThat(version, equalTo(KinSdkVersion.OLD_KIN_SDK))
+        verify(kinVersionProvider, times(2)).kinSdkVersion
+    }
+
+    @Test
+    fun getKinSdkVersion_expiredAndProviderReturnsNull_returnsLastVersion() {
+        // Given
+        `when`(kinVersionProvider.kinSdkVersion).thenReturn(KinSdkVersion.OLD_KIN_SDK, null)
+        val cachingProvider = CachingKinVersionProvider(null, kinVersionProvider, 0, 0, executor)
+        cachingProvider.kinSdkVersion
+
+        // When
+        val version = cachingProvider.kinSdkVersion
+
+        // Then
+        assertThat(version, equalTo(KinSdkVersion.OLD_KIN_SDK))
+        verify(kinVersionProvider, times(2)).kinSdkVersion
+    }
+
+    @Test(expected = FailedToResolveSdkVersionException::class)
+    fun getKinSdkVersion_noCacheAndProviderFails_throws() {
+        `when`(kinVersionProvider.kinSdkVersion).thenThrow(FailedToResolveSdkVersionException())
+        val cachingProvider = CachingKinVersionProvider(null, kinVersionProvider, 60_000, 60_000, executor)
+
+        cachingProvider.kinSdkVersion
+    }
+}
@@ -0,0 +1,90 @@
+package kin.sdk.migration
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+
+
+class CircuitBreakerTest {
+
+    private val openDurationMillis = 50L
+    private val circuitBreaker = CircuitBreaker(3, openDurationMillis)
+
+    @Test
+    fun allowRequest_failuresBelowThreshold_closed() {
+        circuitBreaker.onFailure()
+        circuitBreaker.onFailure()
+
+        assertThat(circuitBreaker.allowRequest(), equalTo(true))
+    }
+
+    @Test
+    fun allowRequest_successBetweenFailures_consecutiveCountReset() {
+        circuitBreaker.onFailure()
+        circuitBreaker.onFailure()
+        circuitBreaker.onSuccess()
+        circuitBreaker.onFailure()
+        circuitBreaker.onFailure()
+
+        assertThat(circuitBreaker.allowRequest(), equalTo(true))
+    }
+
+    @Test
+    fun allowRequest_failuresReachThreshold_open() {
+        open()
+
+        assertThat(circuitBreaker.allowRequest(), equalTo(false))
+    }
+
+    @Test
+    fun allowRequest_openDurationPassed_singleTrialRequest() {
+        // Given
+        open()
+        Thread.sleep(openDurationMillis * 2)
+
+        // When
+        val trial = circuitBreaker.allowRequest()
+        val secondRequest = circuitBreaker.allowRequest()
+
+        // Then
+        assertThat(trial, equalTo(true))
+        assertThat(secondRequest, equalTo(false))
+    }
+
+    @Test
+    fun allowRequest_trialSucceeded_closed() {
+        // Given
+        open()
+        Thread.sleep(openDurationMillis * 2)
+        circuitBreaker.allowRequest()
+
+        // When
+        circuitBreaker.onSuccess()
+
+        // Then
+        assertThat(circuitBreaker.allowRequest(), equalTo(true))
+        assertThat(circuitBreaker.allowRequest(), equalTo(true))
+    }
+
+    @Test
+    fun allowRequest_trialFailed_openAgain() {
+        // Given
+        open()
+        Thread.sleep(openDurationMillis * 2)
+        circuitBreaker.allowRequest()
+
+        // When
+        circuitBreaker.onFailure()
+
+        // Then
+        assertThat(circuitBreaker.allowRequest(), equalTo(false))
+        Thread.sleep(openDurationMillis * 2)
+        assertThat(circuitBreaker.allowRequest(), equalTo(true))
+    }
+
+    private fun open() {
+        for (i in 1..3) {
+            circuitBreaker.onFailure()
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package kin.sdk.migration
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.greaterThanOrEqualTo
+import org.hamcrest.Matchers.lessThanOrEqualTo
+import org.junit.Test
+import java.util.Random
+
+
+class ExponentialBackoffTest {
+
+    private fun fixedRandom(value: Double) = object : Random() {
+        override fun nextDouble() = value
+    }
+
+    @Test
+    fun delayMillis_maxJitter_exponentialUpperBound() {
+        val backoff = ExponentialBackoff(100, 1000, fixedRandom(0.999999))
+
+        assertThat(backoff.delayMillis(0), equalTo(99L))
+        assertThat(backoff.delayMillis(1), equalTo(199L))
+        assertThat(backoff.delayMillis(3), equalTo(799L))
+    }
+
+    @Test
+    fun delayMillis_manyAttempts_cappedAtMaxDelay() {
+        val backoff = ExponentialBackoff(100, 1000, fixedRandom(0.999999))
+
+        assertThat(backoff.delayMillis(4), equalTo(999L))
+        assertThat(backoff.delayMillis(100), equalTo(999L))
+    }
+
+    @Test
+    fun delayMillis_minJitter_zero() {
+        val backoff = ExponentialBackoff(100, 1000, fixedRandom(0.0))
+
+        assertThat(backoff.delayMillis(3), equalTo(0L))
+    }
+
+    @Test
+    fun delayMillis_randomJitter_withinBounds() {
+        val backoff = ExponentialBackoff(100, 1000)
+
+        for (attempt in 0..10) {
+            val delay = backoff.delayMillis(attempt)
+            assertThat(delay, greaterThanOrEqualTo(0L))
+            assertThat(delay, lessThanOrEqualTo(Math.min(1000L, 100L shl attempt)))
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun newBackoff_maxDelayBelowBase_throws() {
+        ExponentialBackoff(1000, 100)
+    }
+}
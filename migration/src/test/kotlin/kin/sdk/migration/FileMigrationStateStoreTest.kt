@@ -0,0 +1,119 @@
+package kin.sdk.migration
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.lessThan
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.RandomAccessFile
+
+
+class FileMigrationStateStoreTest {
+
+    @Rule
+    @JvmField
+    val tempFolder = TemporaryFolder()
+
+    private fun newLogFile(): File = File(tempFolder.root, "state.log")
+
+    @Test
+    fun loadAll_afterSaves_latestStatePerAddress() {
+        // Given
+        val file = newLogFile()
+        val store = FileMigrationStateStore(file)
+        store.save(MigrationState("GA1", true, false, "tx1", 1))
+        store.save(MigrationState("GA2", false, false, null, 2))
+        store.save(MigrationState("GA1", true, true, "tx1", 3))
+
+        // When
+        val states = FileMigrationStateStore(file).loadAll()
+
+        // Then
+        assertThat(states.size, equalTo(2))
+        assertThat(states["GA1"], equalTo(MigrationState("GA1", true, true, "tx1", 3)))
+        assertThat(states["GA2"], equalTo(MigrationState("GA2", false, false, null, 2)))
+    }
+
+    @Test
+    fun loadAll_partiallyWrittenRecord_recordDropped() {
+        // Given
+        val file = newLogFile()
+        val store = FileMigrationStateStore(file)
+        store.save(MigrationState("GA1", true, true, "tx1", 1))
+        store.save(MigrationState("GA2", true, false, "tx2", 2))
+        RandomAccessFile(file, "rw").use { it.setLength(it.length() - 3) }
+
+        // When
+        val states = FileMigrationStateStore(file).loadAll()
+
+        // Then
+        assertThat(states.size, equalTo(1))
+        assertThat(states["GA1"], equalTo(MigrationState("GA1", true, true, "tx1", 1)))
+    }
+
+    @Test
+    fun loadAll_manyStaleRecords_logCompacted() {
+        // Given
+        val file = newLogFile()
+        val store = FileMigrationStateStore(file)
+        for (i in 0 until 100) {
+            store.save(MigrationState("GA1", false, false, null, i.toLong()))
+        }
+        val lengthBeforeLoad = file.length()
+
+        // When
+        val states = FileMigrationStateStore(file).loadAll()
+
+        // Then
+        assertThat(states["GA1"], equalTo(MigrationState("GA1", false, false, null, 99)))
+        assertThat(file.length(), lessThan(lengthBeforeLoad))
+    }
+
+    @Test
+    fun loadAll_unknownHeader_movedAsideAndNewLogReadable() {
+        // Given
+        val file = newLogFile()
+        file.writeBytes(byteArrayOf(1, 2, 3, 4, 5, 6, 7, 8))
+        val store = FileMigrationStateStore(file)
+
+        // When
+        val states = store.loadAll()
+        store.save(MigrationState("GA1", true, true, "tx1", 1))
+
+        // Then
+        assertThat(states.size, equalTo(0))
+        assertThat(File(file.path + ".unknown").exists(), equalTo(true))
+        assertThat(FileMigrationStateStore(file).loadAll()["GA1"], equalTo(MigrationState("GA1", true, true, "tx1", 1)))
+    }
+
+    @Test
+    fun save_partiallyWrittenHeader_headerWrittenAgain() {
+        // Given
+        val file = newLogFile()
+        file.writeBytes(byteArrayOf(0x4B, 0x4D))
+        val store = FileMigrationStateStore(file)
+
+        // When
+        store.save(MigrationState("GA1", true, true, "tx1", 1))
+
+        // Then
+        assertThat(FileMigrationStateStore(file).loadAll()["GA1"], equalTo(MigrationState("GA1", true, true, "tx1", 1)))
+        assertThat(File(file.path + ".unknown").exists(), equalTo(false))
+    }
+
+    @Test
+    fun clear_afterSave_noStates() {
+        // Given
+        val file = newLogFile()
+        val store = FileMigrationStateStore(file)
+        store.save(MigrationState("GA1", true, true, "tx1", 1))
+
+        // When
+        store.clear()
+
+        // Then
+        assertThat(FileMigrationStateStore(file).loadAll().size, equalTo(0))
+    }
+}
@@ -0,0 +1,109 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.KinFuture
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.instanceOf
+import org.junit.After
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+
+class KinFutureTest {
+
+    private val executor = Executors.newFixedThreadPool(2)
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    fun thenAsync_chainedStages_resultOfLastStage() {
+        val future = KinFuture.supplyAsync(Callable { 20 }, executor)
+            .thenAsync(KinFuture.AsyncFunction<Int, Int> { value -> KinFuture.supplyAsync(Callable { value + 1 }, executor) })
+            .map(KinFuture.Function<Int, String> { value -> (value * 2).toString() })
+
+        assertThat(future.get(5, TimeUnit.SECONDS), equalTo("42"))
+    }
+
+    @Test
+    fun thenAsync_firstStageFails_failurePropagatedAndNextStageSkipped() {
+        var nextStageCalled = false
+        val future = KinFuture.supplyAsync(Callable<Int> { throw IllegalStateException("failed") }, executor)
+            .thenAsync(KinFuture.AsyncFunction<Int, Int> { value ->
+                nextStageCalled = true
+                KinFuture.completed(value)
+            })
+
+        try {
+            future.get(5, TimeUnit.SECONDS)
+            throw AssertionError("expected a failure")
+        } catch (e: ExecutionException) {
+            assertThat(e.cause, instanceOf(IllegalStateException::class.java))
+        }
+        assertThat(nextStageCalled, equalTo(false))
+    }
+
+    @Test
+    fun cancel_runningStage_interruptedAndCallbackGetsCancellation() {
+        val started = CountDownLatch(1)
+        val interrupted = CountDownLatch(1)
+        val future = KinFuture.completed(1)
+            .thenAsync(KinFuture.AsyncFunction<Int, Int> {
+                KinFuture.supplyAsync(Callable {
+                    started.countDown()
+                    try {
+                        Thread.sleep(10_000)
+                    } catch (e: InterruptedException) {
+                        interrupted.countDown()
+                    }
+                    1
+                }, executor)
+            })
+        val callbackError = arrayOfNulls<Exception>(1)
+        val callbackCalled = CountDownLatch(1)
+        future.addCallback(object : KinFuture.Callback<Int> {
+            override fun onResult(result: Int) {
+                callbackCalled.countDown()
+            }
+
+            override fun onError(e: Exception) {
+                callbackError[0] = e
+                callbackCalled.countDown()
+            }
+        }, executor)
+        started.await(5, TimeUnit.SECONDS)
+
+        future.cancel()
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS), equalTo(true))
+        assertThat(callbackCalled.await(5, TimeUnit.SECONDS), equalTo(true))
+        assertThat(callbackError[0], instanceOf(CancellationException::class.java))
+        assertThat(future.isCancelled, equalTo(true))
+    }
+
+    @Test
+    fun cancel_racingCompletion_nextTaskNotInterrupted() {
+        val singleThreadExecutor = Executors.newSingleThreadExecutor()
+        try {
+            for (i in 1..200) {
+                val future = KinFuture.supplyAsync(Callable { i }, singleThreadExecutor)
+                val next = KinFuture.supplyAsync(Callable {
+                    Thread.sleep(1)
+                    Thread.currentThread().isInterrupted
+                }, singleThreadExecutor)
+                future.cancel()
+
+                assertThat(next.get(5, TimeUnit.SECONDS), equalTo(false))
+            }
+        } finally {
+            singleThreadExecutor.shutdownNow()
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.exception.MigrationCancelledException
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+
+class MigrationHandleTest {
+
+    private val stopped = CountDownLatch(1)
+    private val exited = CountDownLatch(1)
+
+    private val handle = MigrationHandle(MigrationHandle.NO_DEADLINE, object : MigrationHandle.StopListener {
+        override fun onStopped(handle: MigrationHandle, exception: MigrationCancelledException) {
+            stopped.countDown()
+        }
+
+        override fun onWorkersExited(handle: MigrationHandle) {
+            exited.countDown()
+        }
+    })
+
+    @Test
+    fun cancel_workerIgnoresInterrupt_exitedOnlyAfterWorkerReturns() {
+        // Given
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val worker = handle.newWorker(Runnable {
+            started.countDown()
+            while (true) {
+                try {
+                    release.await()
+                    break
+                } catch (e: InterruptedException) {
+                    // like a blocking call that doesn't respond to interrupts.
+                }
+            }
+        })
+        Thread(worker).start()
+        started.await(5, TimeUnit.SECONDS)
+
+        // When
+        handle.cancel()
+
+        // Then
+        assertThat(stopped.await(5, TimeUnit.SECONDS), equalTo(true))
+        assertThat(exited.await(200, TimeUnit.MILLISECONDS), equalTo(false))
+        release.countDown()
+        assertThat(exited.await(5, TimeUnit.SECONDS), equalTo(true))
+    }
+
+    @Test
+    fun cancel_workerNotStarted_exited() {
+        // Given
+        handle.newWorker(Runnable { throw AssertionError("should not run") })
+
+        // When
+        handle.cancel()
+
+        // Then
+        assertThat(exited.await(5, TimeUnit.SECONDS), equalTo(true))
+    }
+
+    @Test
+    fun resultWorkerDiscarded_interruptedAndExitedAfterIt() {
+        // Given
+        val started = CountDownLatch(1)
+        val probe = handle.newWorker(Callable<String> {
+            started.countDown()
+            Thread.sleep(60_000)
+            "probe"
+        })
+        Thread(probe).start()
+        started.await(5, TimeUnit.SECONDS)
+        handle.newWorker(Runnable { }).run()
+        assertThat(exited.await(200, TimeUnit.MILLISECONDS), equalTo(false))
+
+        // When
+        probe.cancel(true)
+
+        // Then
+        assertThat(exited.await(5, TimeUnit.SECONDS), equalTo(true))
+    }
+}
@@ -0,0 +1,43 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.MigrationMetrics.Stage
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+
+
+class MigrationMetricsTest {
+
+    @Test
+    fun bucketOf_powersOfTwo_expectedBuckets() {
+        assertThat(MigrationMetrics.bucketOf(0), equalTo(0))
+        assertThat(MigrationMetrics.bucketOf(1), equalTo(1))
+        assertThat(MigrationMetrics.bucketOf(3), equalTo(2))
+        assertThat(MigrationMetrics.bucketOf(1024), equalTo(11))
+        assertThat(MigrationMetrics.bucketOf(Long.MAX_VALUE), equalTo(MigrationMetrics.BUCKETS_COUNT - 1))
+    }
+
+    @Test
+    fun snapshot_afterStages_countsAndInFlight() {
+        // Given
+        val metrics = MigrationMetrics()
+        val first = metrics.begin(Stage.BURN_CHECK)
+        metrics.begin(Stage.BURN_CHECK)
+        metrics.end(Stage.BURN_CHECK, first, false)
+        metrics.recordRetry(Stage.BURN_CHECK)
+        metrics.recordHttpStatus(503)
+        metrics.recordHttpStatus(200)
+        metrics.recordHttpStatus(503)
+
+        // When
+        val snapshot = metrics.snapshot()
+
+        // Then
+        assertThat(snapshot.getCount(Stage.BURN_CHECK), equalTo(1L))
+        assertThat(snapshot.getFailures(Stage.BURN_CHECK), equalTo(1L))
+        assertThat(snapshot.getRetries(Stage.BURN_CHECK), equalTo(1L))
+        assertThat(snapshot.getInFlight(Stage.BURN_CHECK), equalTo(1L))
+        assertThat(snapshot.getCount(Stage.MIGRATION_REQUEST), equalTo(0L))
+        assertThat(snapshot.httpStatuses, equalTo(mapOf(200 to 1L, 503 to 2L)))
+    }
+}
@@ -0,0 +1,47 @@
+package kin.sdk.migration
+
+import okhttp3.MediaType
+import okhttp3.ResponseBody
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.nullValue
+import org.junit.Test
+import java.io.IOException
+
+
+class MigrationServiceParserTest {
+
+    private fun jsonBody(json: String): ResponseBody {
+        return ResponseBody.create(MediaType.parse("application/json"), json)
+    }
+
+    @Test
+    fun parseError_codeAndMessage_fieldsRead() {
+        // When
+        val result = MigrationServiceParser.parseError(
+                jsonBody("{\"extra\":{\"a\":[1,2]},\"code\":4002,\"message\":\"already migrated\"}"))
+
+        // Then
+        assertThat(result.code, equalTo("4002"))
+        assertThat(result.message, equalTo("already migrated"))
+    }
+
+    @Test
+    fun parseError_nullMessage_nullField() {
+        // When
+        val result = MigrationServiceParser.parseError(jsonBody("{\"code\":\"4001\",\"message\":null}"))
+
+        // Then
+        assertThat(result.code, equalTo("4001"))
+        assertThat(result.message, nullValue())
+    }
+
+    @Test(expected = IOException::class)
+    fun parseError_bodyTooLarge_exception() {
+        // Given
+        val padding = "x".repeat(MigrationServiceParser.MAX_ERROR_BODY_CHARS)
+
+        // When
+        MigrationServiceParser.parseError(jsonBody("{\"padding\":\"$padding\",\"code\":\"4001\"}"))
+    }
+}
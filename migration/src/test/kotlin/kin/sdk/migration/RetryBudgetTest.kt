@@ -0,0 +1,53 @@
+package kin.sdk.migration
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+
+
+class RetryBudgetTest {
+
+    @Test
+    fun tryAcquireRetry_fullBudget_maxTokensRetries() {
+        val retryBudget = RetryBudget(2, 0.5f)
+
+        assertThat(retryBudget.tryAcquireRetry(), equalTo(true))
+        assertThat(retryBudget.tryAcquireRetry(), equalTo(true))
+        assertThat(retryBudget.tryAcquireRetry(), equalTo(false))
+    }
+
+    @Test
+    fun tryAcquireRetry_requestsAfterExhausted_refilledByRatio() {
+        // Given
+        val retryBudget = RetryBudget(2, 0.5f)
+        retryBudget.tryAcquireRetry()
+        retryBudget.tryAcquireRetry()
+
+        // When
+        retryBudget.onRequest()
+        val afterOneRequest = retryBudget.tryAcquireRetry()
+        retryBudget.onRequest()
+        retryBudget.onRequest()
+        val afterTwoRequests = retryBudget.tryAcquireRetry()
+
+        // Then
+        assertThat(afterOneRequest, equalTo(false))
+        assertThat(afterTwoRequests, equalTo(true))
+        assertThat(retryBudget.tryAcquireRetry(), equalTo(false))
+    }
+
+    @Test
+    fun onRequest_fullBudget_cappedAtMaxTokens() {
+        // Given
+        val retryBudget = RetryBudget(1, 0.5f)
+
+        // When
+        for (i in 1..10) {
+            retryBudget.onRequest()
+        }
+
+        // Then
+        assertThat(retryBudget.tryAcquireRetry(), equalTo(true))
+        assertThat(retryBudget.tryAcquireRetry(), equalTo(false))
+    }
+}
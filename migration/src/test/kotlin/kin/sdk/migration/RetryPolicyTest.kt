@@ -0,0 +1,121 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.exception.OperationFailedException
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.greaterThanOrEqualTo
+import org.hamcrest.Matchers.lessThanOrEqualTo
+import org.junit.Test
+import java.io.IOException
+
+
+class RetryPolicyTest {
+
+    private val networkError = OperationFailedException("network error", IOException())
+
+    private fun newRetryPolicy(maxRetries: Int = 3, deadlineMillis: Long = 60000): RetryPolicy {
+        return RetryPolicy(maxRetries, ExponentialBackoff(1, 1), deadlineMillis, RetryClassifier())
+    }
+
+    @Test
+    fun nextRetryDelay_networkError_retryUntilMaxRetries() {
+        // Given
+        val attempts = newRetryPolicy(maxRetries = 2).newAttempts("operation", "target", null, null)
+
+        // When
+        attempts.begin()
+        val firstDelay = attempts.nextRetryDelayMillis(networkError)
+        attempts.begin()
+        val secondDelay = attempts.nextRetryDelayMillis(networkError)
+        attempts.begin()
+        val thirdDelay = attempts.nextRetryDelayMillis(networkError)
+
+        // Then
+        assertThat(firstDelay, greaterThanOrEqualTo(0L))
+        assertThat(secondDelay, greaterThanOrEqualTo(0L))
+        assertThat(thirdDelay, equalTo(RetryPolicy.NO_RETRY))
+    }
+
+    @Test
+    fun nextRetryDelay_nonRetryableError_noRetry() {
+        // Given
+        val attempts = newRetryPolicy().newAttempts("operation", "target", null, null)
+
+        // When
+        attempts.begin()
+        val delay = attempts.nextRetryDelayMillis(OperationFailedException("not retryable"))
+
+        // Then
+        assertThat(delay, equalTo(RetryPolicy.NO_RETRY))
+    }
+
+    @Test
+    fun nextRetryDelay_statusCodes_retryOnlyServerErrorsAndTooManyRequests() {
+        val retryPolicy = newRetryPolicy()
+
+        assertThat(retryPolicy.newAttempts("operation", "target", null, null).nextRetryDelayMillis(404, null),
+                equalTo(RetryPolicy.NO_RETRY))
+        assertThat(retryPolicy.newAttempts("operation", "target", null, null).nextRetryDelayMillis(503, null),
+                greaterThanOrEqualTo(0L))
+        assertThat(retryPolicy.newAttempts("operation", "target", null, null).nextRetryDelayMillis(429, null),
+                greaterThanOrEqualTo(0L))
+    }
+
+    @Test
+    fun nextRetryDelay_deadlinePassed_noRetry() {
+        // Given
+        val attempts = newRetryPolicy(deadlineMillis = 0).newAttempts("operation", "target", null, null)
+
+        // When
+        attempts.begin()
+        val delay = attempts.nextRetryDelayMillis(networkError)
+
+        // Then
+        assertThat(delay, equalTo(RetryPolicy.NO_RETRY))
+    }
+
+    @Test
+    fun begin_consecutiveFailures_circuitBreakerOpens() {
+        // Given
+        val retryPolicy = newRetryPolicy(maxRetries = 0)
+
+        // When
+        for (i in 1..5) {
+            val attempts = retryPolicy.newAttempts("operation", "target", null, null)
+            attempts.begin()
+            attempts.nextRetryDelayMillis(networkError)
+        }
+
+        // Then
+        assertThat(retryPolicy.newAttempts("operation", "target", null, null).begin(), equalTo(false))
+        assertThat(retryPolicy.newAttempts("operation", "other_target", null, null).begin(), equalTo(true))
+    }
+
+    @Test
+    fun begin_nonRetryableErrorBetweenFailures_circuitBreakerStaysClosed() {
+        // Given
+        val retryPolicy = newRetryPolicy(maxRetries = 0)
+        val fail = {
+            val attempts = retryPolicy.newAttempts("operation", "target", null, null)
+            attempts.begin()
+            attempts.nextRetryDelayMillis(networkError)
+        }
+
+        // When
+        for (i in 1..4) fail()
+        val attempts = retryPolicy.newAttempts("operation", "target", null, null)
+        attempts.begin()
+        attempts.nextRetryDelayMillis(OperationFailedException("not retryable"))
+        for (i in 1..4) fail()
+
+        // Then
+        assertThat(retryPolicy.newAttempts("operation", "target", null, null).begin(), equalTo(true))
+    }
+
+    @Test
+    fun parseRetryAfter_deltaSeconds_success() {
+        assertThat(RetryPolicy.parseRetryAfterMillis("2"), equalTo(2000L))
+        assertThat(RetryPolicy.parseRetryAfterMillis("not a date"), equalTo(0L))
+        assertThat(RetryPolicy.parseRetryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"), lessThanOrEqualTo(0L))
+    }
+}
@@ -0,0 +1,70 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.KinFuture
+import kin.sdk.migration.internal.SerialOperationQueue
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+
+
+class SerialOperationQueueTest {
+
+    private val queue = SerialOperationQueue()
+
+    @Test
+    fun enqueue_previousPending_nextStartsOnlyAfterItCompletes() {
+        // Given
+        val first = KinFuture<String>()
+        var secondStarted = false
+        val firstResult = queue.enqueue(SerialOperationQueue.Operation { first })
+        val secondResult = queue.enqueue(SerialOperationQueue.Operation {
+            secondStarted = true
+            KinFuture.completed("second")
+        })
+        assertThat(secondStarted, equalTo(false))
+
+        // When
+        first.complete("first")
+
+        // Then
+        assertThat(secondStarted, equalTo(true))
+        assertThat(firstResult.get(), equalTo("first"))
+        assertThat(secondResult.get(), equalTo("second"))
+    }
+
+    @Test
+    fun enqueue_previousFailed_nextStillStarts() {
+        // Given
+        val first = KinFuture<String>()
+        val firstResult = queue.enqueue(SerialOperationQueue.Operation { first })
+        val secondResult = queue.enqueue(SerialOperationQueue.Operation { KinFuture.completed("second") })
+
+        // When
+        first.fail(IllegalStateException())
+
+        // Then
+        assertThat(firstResult.isDone, equalTo(true))
+        assertThat(secondResult.get(), equalTo("second"))
+    }
+
+    @Test
+    fun enqueue_cancelledBeforeStart_operationSkipped() {
+        // Given
+        val first = KinFuture<String>()
+        var secondStarted = false
+        queue.enqueue(SerialOperationQueue.Operation { first })
+        val secondResult = queue.enqueue(SerialOperationQueue.Operation {
+            secondStarted = true
+            KinFuture.completed("second")
+        })
+        val thirdResult = queue.enqueue(SerialOperationQueue.Operation { KinFuture.completed("third") })
+
+        // When
+        secondResult.cancel()
+        first.complete("first")
+
+        // Then
+        assertThat(secondStarted, equalTo(false))
+        assertThat(thirdResult.get(), equalTo("third"))
+    }
+}
@@ -0,0 +1,94 @@
+package kin.sdk.migration
+
+import kin.sdk.migration.common.KinFuture
+import kin.sdk.migration.common.exception.OperationFailedException
+import kin.sdk.migration.common.exception.TransactionFailedException
+import kin.sdk.migration.internal.SerialOperationQueue
+import kin.sdk.migration.internal.TransactionSequencer
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+
+class TransactionSequencerTest {
+
+    private val sequencer = TransactionSequencer()
+
+    @Test
+    fun submitAsync_badSequence_rebuiltAndSucceeds() {
+        // Given
+        var attempts = 0
+        val operation = SerialOperationQueue.Operation<String> {
+            attempts++
+            if (attempts == 1) KinFuture.failed(badSequence()) else KinFuture.completed("tx")
+        }
+
+        // When
+        val result = sequencer.submitAsync(operation).get(5, TimeUnit.SECONDS)
+
+        // Then
+        assertThat(result, equalTo("tx"))
+        assertThat(attempts, equalTo(2))
+        assertThat(sequencer.badSequenceRetries, equalTo(1L))
+        assertThat(sequencer.submittedCount, equalTo(1L))
+    }
+
+    @Test
+    fun submit_badSequenceEveryTime_givesUpAfterMaxRetries() {
+        var attempts = 0
+
+        try {
+            sequencer.submit(TransactionSequencer.Submission<String> {
+                attempts++
+                throw badSequence()
+            })
+            throw AssertionError("expected a failure")
+        } catch (e: TransactionFailedException) {
+            assertThat(e.transactionResultCode, equalTo("tx_bad_seq"))
+        }
+        assertThat(attempts, equalTo(4))
+    }
+
+    @Test
+    fun submit_asyncPending_waitsForIt() {
+        // Given
+        val pending = KinFuture<String>()
+        sequencer.submitAsync(SerialOperationQueue.Operation { pending })
+        val submitted = CountDownLatch(1)
+        val thread = Thread {
+            sequencer.submit(TransactionSequencer.Submission<String> { "sync" })
+            submitted.countDown()
+        }
+
+        // When
+        thread.start()
+        val submittedBeforeAsyncDone = submitted.await(200, TimeUnit.MILLISECONDS)
+        pending.complete("async")
+
+        // Then
+        assertThat(submittedBeforeAsyncDone, equalTo(false))
+        assertThat(submitted.await(5, TimeUnit.SECONDS), equalTo(true))
+    }
+
+    @Test
+    fun submit_asyncNeverCompletes_timesOut() {
+        // Given
+        val sequencer = TransactionSequencer(100)
+        sequencer.submitAsync(SerialOperationQueue.Operation { KinFuture<String>() })
+
+        // When
+        val error = try {
+            sequencer.submit(TransactionSequencer.Submission<String> { "sync" })
+            null
+        } catch (e: OperationFailedException) {
+            e
+        }
+
+        // Then
+        assertThat(error != null, equalTo(true))
+    }
+
+    private fun badSequence() = TransactionFailedException("tx_bad_seq", null)
+}